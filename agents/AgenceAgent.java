@@ -12,14 +12,14 @@ import jade.lang.acl.ACLMessage;
 import jade.lang.acl.MessageTemplate;
 import comportements.ContractNetVente;
 import gui.AgenceGui;
-import data.Journey;
+import data.CatalogStore;
 import data.JourneysList;
+import data.MappedTimetable;
+import data.TimetableFile;
 import launch.LaunchSimu;
 
-import java.io.File;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.util.List;
+import java.nio.file.Path;
 import java.util.logging.Level;
 
 /**
@@ -35,9 +35,13 @@ public class AgenceAgent extends GuiAgent {
     public static final int EXIT = 0;
 
     /**
-     * catalog of the proposed journeys
+     * catalog of the proposed journeys, read from the files at the setup
      */
     private JourneysList catalog;
+    /**
+     * versions of the catalog, published once the setup has read the files
+     */
+    private CatalogStore catalogs;
     /**
      * graphical user interface linked to the seller agent
      */
@@ -55,7 +59,9 @@ public class AgenceAgent extends GuiAgent {
         window = new gui.AgenceGui(this);
         window.display();
 
-        if (args != null && args.length > 0) {
+        if (args != null && args.length > 0 && ((String) args[0]).endsWith(".ttb")) {
+            fromTimetable2Catalog((String) args[0]);
+        } else if (args != null && args.length > 0) {
             fromCSV2Catalog((String) args[0]);
             // Initialize bike zones from CSV files
             data.BikeZoneInitializer.initializeBikeZones((String) args[0]);
@@ -73,6 +79,9 @@ public class AgenceAgent extends GuiAgent {
         addBehaviour(new ReceiverBehaviour(this, -1, MessageTemplate.MatchTopic(topic), true, (a, m)->{
                     println("Message recu sur le topic " + topic.getLocalName() + ". Contenu " + m.getContent()
                             + " emis par :  " + m.getSender().getLocalName());
+                    // the journeys on the road of the alert are no more proposed
+                    var cities = m.getContent().split(",");
+                    if (cities.length == 2 && catalogs != null) catalogs.removeJourneysBetween(cities[0], cities[1]);
                 }));
 
         //FIN REGLAGE ECOUTE DE LA RADIO
@@ -82,7 +91,8 @@ public class AgenceAgent extends GuiAgent {
         var template = MessageTemplate.and(
                 MessageTemplate.MatchProtocol(FIPANames.InteractionProtocol.FIPA_CONTRACT_NET),
                 MessageTemplate.MatchPerformative(ACLMessage.CFP));
-        addBehaviour(new ContractNetVente(this, template, catalog));
+        catalogs = new CatalogStore(catalog);
+        addBehaviour(new ContractNetVente(this, template, catalogs));
 
     }
 
@@ -113,10 +123,10 @@ public class AgenceAgent extends GuiAgent {
     }
     
     /**
-     * Get the journey catalog
+     * Get the versions of the journey catalog
      */
-    public JourneysList getCatalog() {
-        return catalog;
+    public CatalogStore getCatalogs() {
+        return catalogs;
     }
 
     /**
@@ -127,63 +137,32 @@ public class AgenceAgent extends GuiAgent {
      * @param file name of the cvs file
      */
     private void fromCSV2Catalog(final String file) {
-        List<String> lines = null;
-        try {lines = Files.readAllLines(new File(file).toPath());}
-        catch (IOException e) {
+        JourneysList journeys = null;
+        try {
+            journeys = TimetableFile.readCsv(file, this.getLocalName());
+        } catch (IOException e) {
             window.println("fichier " + file + " non trouve !!!");
         }
-        if(lines!=null)
-        {
-            int nbLines = lines.size();
-            for(int i=1; i<nbLines; i++){
-            String[] nextLine = lines.get(i).split(",");
-            String origine = nextLine[0].trim().toUpperCase();
-            String destination = nextLine[1].trim().toUpperCase();
-            String means = nextLine[2].trim();
-            int departureDate = Integer.parseInt(nextLine[3].trim());
-            int duration = Integer.parseInt(nextLine[4].trim());
-            double cost = Double.parseDouble(nextLine[5].trim());
-            int co2 = Integer.parseInt(nextLine[6].trim());
-            int confort = Integer.parseInt(nextLine[7].trim());
-            int nbParams = nextLine.length;
-            int nbRepetitions = (nbParams < 9) ? 0 : Integer.parseInt(nextLine[8].trim());
-            int frequence = (nbRepetitions == 0) ? 0 : Integer.parseInt(nextLine[9].trim());
-            Journey firstJourney = new Journey(origine, destination, means, departureDate, duration, cost, co2, confort);
-            firstJourney.setProposedBy(this.getLocalName());
-            int nbPlaces = switch (means) {
-                case "velo" -> 20;
-                case "car" -> 3;
-                case "bus" -> 50;
-                case "tram" -> 200;
-                default -> 0;
-            };
-            firstJourney.setPlaces(nbPlaces);
-            window.println(firstJourney.toString());
-            catalog.addJourney(firstJourney);
-            if (nbRepetitions > 0) {
-                repeatJourney(departureDate, nbRepetitions, frequence, firstJourney);
-                }
-            }
+        if (journeys != null) {
+            window.println(journeys.toString());
+            catalog.addJourneys(journeys);
         }
     }
 
     /**
-     * repeat a journey on a sequence of dates into a catalog
+     * initialize the catalog from a binary timetable (built from a csv file by TimetableFile)<br>
+     * the file is mapped in memory, nothing is parsed; the journeys are only built because the
+     * catalog is sent as a JourneysList to the travellers
      *
-     * @param departureDate date of the first journey
-     * @param nbRepetitions nb of journeys to add
-     * @param frequence     frequency of the journeys in minutes
-     * @param journey       the first journey to clone
+     * @param file name of the binary timetable
      */
-    private void repeatJourney(final int departureDate, final int nbRepetitions, final int frequence,
-                               final Journey journey) {
-        int nextDeparture = departureDate;
-        for (int i = 0; i < nbRepetitions; i++) {
-            final Journey cloneJ = journey.clone();
-            nextDeparture = Journey.addTime(nextDeparture, frequence);
-            cloneJ.setDepartureDate(nextDeparture);
-            window.println(cloneJ.toString());
-            catalog.addJourney(cloneJ);
+    private void fromTimetable2Catalog(final String file) {
+        try {
+            var timetable = MappedTimetable.open(Path.of(file));
+            catalog.addJourneys(timetable.toJourneysList(this.getLocalName()));
+            window.println(timetable.size() + " voyages lus dans " + file);
+        } catch (IOException e) {
+            window.println("fichier " + file + " non lisible : " + e.getMessage());
         }
     }
 
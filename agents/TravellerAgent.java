@@ -11,16 +11,21 @@ import jade.lang.acl.ACLMessage;
 import jade.lang.acl.MessageTemplate;
 import comportements.ContractNetAchat;
 import data.ComposedJourney;
+import data.Diversity;
+import data.Journey;
 import data.JourneysList;
+import data.Preference;
+import data.RouteCache;
+import data.SearchOptions;
 import data.TextEnhancementService;
 import data.WeatherManager;
 import gui.TravellerGui;
 
 import java.awt.*;
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.List;
 import java.util.OptionalDouble;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 /**
@@ -37,6 +42,18 @@ public class TravellerAgent extends GuiAgent {
      * code pour achat de livre par la gui
      */
     public static final int BUY_TRAVEL = 1;
+    /**
+     * nb of alternative journeys computed for the preference of the traveller
+     */
+    private static final int NB_ALTERNATIVES = 3;
+    /**
+     * maximal duration of the search of the journeys (in ms)
+     */
+    private static final long SEARCH_TIME_LIMIT = 500;
+    /**
+     * nb of queries whose results are kept
+     */
+    private static final int ROUTE_CACHE_SIZE = 64;
 
     /**
      * liste des vendeurs
@@ -53,6 +70,11 @@ public class TravellerAgent extends GuiAgent {
      * */
     int delay = 90;
 
+    /**
+     * results of the last searches, given back while the routes of the catalogs do not change
+     */
+    private final RouteCache routeCache = new RouteCache(ROUTE_CACHE_SIZE);
+
     /**
      * the journey chosen by the agent
      */
@@ -100,6 +122,9 @@ public class TravellerAgent extends GuiAgent {
         addBehaviour(new ReceiverBehaviour(this, -1, MessageTemplate.MatchTopic(topic), true, (a, m) -> {
             println("Message recu sur le topic " + topic.getLocalName() + ". Contenu " + m.getContent()
                     + " emis par :  " + m.getSender().getLocalName());
+            // the journeys found on the road of the alert can no more be proposed
+            var cities = m.getContent().split(",");
+            if (cities.length == 2) routeCache.invalidate(j -> j.isBetween(cities[0], cities[1]));
         }));
 
     }
@@ -140,30 +165,29 @@ public class TravellerAgent extends GuiAgent {
     public void computeComposedJourney(final String from, final String to, final int departure,
                                        final String preference) {
         final List<ComposedJourney> journeys = new ArrayList<>();
+        final var criterion = Preference.of(preference);
+
+        final boolean result;
+        final var cached = routeCache.get(from, to, departure, 60, criterion, NB_ALTERNATIVES, catalogs);
+        if (cached != null) {
+            journeys.addAll(cached);
+            result = !journeys.isEmpty();
+        } else {
+            // only a few alternatives through different cities are computed, the best first for the preference
+            final var options = new SearchOptions().setTimeLimit(SEARCH_TIME_LIMIT);
+            // the journeys that start too late are dropped by the search, that gives other ones instead
+            final Predicate<ComposedJourney> startsInTime = j ->
+                    Journey.toMinutes(j.getJourneys().getFirst().getDepartureDate()) - Journey.toMinutes(departure) <= delay;
+            result = catalogs.findAlternativeJourneys(from, to, departure, 60, criterion, NB_ALTERNATIVES,
+                    Diversity.CITIES, startsInTime, options, journeys);
+            if (options.isTruncated()) println("search stopped after " + options.getExpanded() + " steps, the journeys may not be the best");
+            else routeCache.put(from, to, departure, 60, criterion, NB_ALTERNATIVES, catalogs, journeys);
+        }
 
-        final boolean result = catalogs.findIndirectJourney(from, to, departure, 60, new ArrayList<>(),
-                new ArrayList<>(), journeys);
-
-        if (!result) {
+        if (!result || journeys.isEmpty()) {
             printlnEnhanced("no journey found !!!", TextEnhancementService.MessageType.ERROR_MESSAGE);
-        }
-        if (result) {
-            //oter les voyages demarrant trop tard
-            journeys.removeIf(j -> j.getJourneys().getFirst().getDepartureDate() - departure > delay);
-            switch (preference) {
-                case "duration" -> {
-                    journeys.sort(Comparator.comparingDouble(ComposedJourney::getDuration));
-                }
-                case "confort" -> journeys.sort(Comparator.comparingInt(ComposedJourney::getConfort).reversed());
-                case "cost" -> journeys.sort(Comparator.comparingDouble(ComposedJourney::getCost));
-                case "duration-cost" ->
-                //        journeys.sort(Comparator.comparingDouble(ComposedJourney::getCost));
-                journeys.sort((j1, j2) -> {
-                    var difDuration = j1.getDuration() - j2.getDuration() / Math.max(j2.getDuration(),j1.getDuration());
-                    var difCost = j1.getCost() - j2.getCost() / Math.max(j2.getCost(),j1.getCost());
-                    return (int)(10*(difDuration + difCost));});
-                default -> journeys.sort(Comparator.comparingDouble(ComposedJourney::getCost));
-            }
+        } else {
+            journeys.sort(criterion.comparator());
             myJourney = journeys.getFirst();
             
             // Enhanced journey selection with weather context
@@ -171,6 +195,7 @@ public class TravellerAgent extends GuiAgent {
             String journeyMsg = "I choose this journey : " + myJourney;
             String enhancedJourneyMsg = textEnhancer.enhanceTravelProposal(journeyMsg, weatherCondition);
             println(enhancedJourneyMsg);
+            journeys.stream().skip(1).forEach(j -> println("alternative : " + j));
         }
     }
 
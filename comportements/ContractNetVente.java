@@ -10,8 +10,8 @@ import jade.lang.acl.MessageTemplate;
 import jade.lang.acl.UnreadableException;
 import jade.proto.ContractNetResponder;
 import agents.AgenceAgent;
+import data.CatalogStore;
 import data.Journey;
-import data.JourneysList;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -26,9 +26,9 @@ import java.util.ArrayList;
 public class ContractNetVente extends ContractNetResponder {
 
     /**
-     * catalog of the proposed journeys
+     * versions of the catalog of the proposed journeys
      */
-    private final JourneysList catalog;
+    private final CatalogStore catalog;
 
 
     /**
@@ -43,7 +43,7 @@ public class ContractNetVente extends ContractNetResponder {
      * @param template modele de message a attendre
      * @param _catalog catalogue des voyages
      */
-    public ContractNetVente(Agent agent, MessageTemplate template, JourneysList _catalog) {
+    public ContractNetVente(Agent agent, MessageTemplate template, CatalogStore _catalog) {
         super(agent, template);
         var monAgent = (AgenceAgent) agent;
         window = monAgent.getWindow();
@@ -60,11 +60,13 @@ public class ContractNetVente extends ContractNetResponder {
      */
     protected ACLMessage handleCfp(ACLMessage cfp) throws NotUnderstoodException, RefuseException {
         window.println("Agent " + myAgent.getLocalName() + ": CFP recu de " + cfp.getSender().getLocalName());
-        if (catalog.isEmpty()) throw new RefuseException("no journey !");
+        // the snapshot is never modified, even if a ticket is sold during the serialization
+        var snapshot = catalog.snapshot();
+        if (snapshot.isEmpty()) throw new RefuseException("no journey !");
         var propose = cfp.createReply();
         propose.setPerformative(ACLMessage.PROPOSE);
         try {
-            propose.setContentObject(catalog);
+            propose.setContentObject(snapshot);
         } catch (IOException e) {
             e.printStackTrace();
         }
@@ -104,26 +106,18 @@ public class ContractNetVente extends ContractNetResponder {
     }
 
 
-    /**get in the catalog the journey corresponding to j and remove one place*/
+    /**get in the catalog the journey corresponding to j and remove one place (in a new version of the catalog)*/
     private void removeTicket(Journey j) {
-        ArrayList<Journey> list = catalog.getJourneysFrom(j.getStart());
-        if (list != null) {
-            list.stream()
-                .filter(journey -> (journey.getStop().equals(j.getStop()) && 
-                                   journey.getDepartureDate() == j.getDepartureDate() &&
-                                   journey.getMeans().equals(j.getMeans())))
-                .forEach(journey -> {
-                    // Use the new booking system
-                    boolean success = journey.bookPlace(j.getDepartureDate());
-                    if (success) {
-                        window.println("Place reserved for " + journey.getMeans() + " from " + 
-                                     journey.getStart() + " to " + journey.getStop() + 
-                                     ". Remaining places: " + journey.getAvailablePlaces(j.getDepartureDate()));
-                    } else {
-                        window.println("Failed to reserve place for " + journey.getMeans() + " from " + 
-                                     journey.getStart() + " to " + journey.getStop() + " - no places available");
-                    }
-                });
+        for (var booking : catalog.book(j)) {
+            var journey = booking.journey();
+            if (booking.success()) {
+                window.println("Place reserved for " + journey.getMeans() + " from " +
+                             journey.getStart() + " to " + journey.getStop() +
+                             ". Remaining places: " + journey.getAvailablePlaces(j.getDepartureDate()));
+            } else {
+                window.println("Failed to reserve place for " + journey.getMeans() + " from " +
+                             journey.getStart() + " to " + journey.getStop() + " - no places available");
+            }
         }
     }
 
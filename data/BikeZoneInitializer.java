@@ -30,8 +30,7 @@ public class BikeZoneInitializer {
                     
                     String[] fields = line.split(";");
                     if (fields.length >= 3) {
-                        String means = fields[2].trim();
-                        if (means.equalsIgnoreCase("BIKE") || means.equalsIgnoreCase("VELO") || means.equalsIgnoreCase("VÉLO")) {
+                        if (Means.of(fields[2]).isBike()) {
                             String start = fields[0].trim().toUpperCase();
                             String stop = fields[1].trim().toUpperCase();
                             zones.add(start);
@@ -26,6 +26,11 @@ public class BikeZoneManager implements Serializable {
      */
     private Map<String, List<BikeReturn>> scheduledReturns;
     
+    /**
+     * Number of changes of the bike counts (bookings, returns, resets), used to know if a cached search is still valid
+     */
+    private long version;
+    
     private static BikeZoneManager instance;
     
     /**
@@ -47,9 +52,9 @@ public class BikeZoneManager implements Serializable {
     }
     
     /**
-     * Get the singleton instance
+     * Get the singleton instance (the methods are synchronized, the bikes can be checked by parallel searches)
      */
-    public static BikeZoneManager getInstance() {
+    public static synchronized BikeZoneManager getInstance() {
         if (instance == null) {
             instance = new BikeZoneManager();
         }
@@ -59,7 +64,7 @@ public class BikeZoneManager implements Serializable {
     /**
      * Initialize a zone with the default number of bikes
      */
-    public void initializeZone(String zone) {
+    public synchronized void initializeZone(String zone) {
         currentBikes.putIfAbsent(zone.toUpperCase(), INITIAL_BIKES_PER_ZONE);
         scheduledReturns.putIfAbsent(zone.toUpperCase(), new ArrayList<>());
     }
@@ -67,7 +72,7 @@ public class BikeZoneManager implements Serializable {
     /**
      * Get available bikes in a zone at a specific time
      */
-    public int getAvailableBikes(String zone, int currentTime) {
+    public synchronized int getAvailableBikes(String zone, int currentTime) {
         String upperZone = zone.toUpperCase();
         initializeZone(upperZone);
         
@@ -85,7 +90,7 @@ public class BikeZoneManager implements Serializable {
      * @param currentTime current time for checking availability
      * @return true if booking successful
      */
-    public boolean bookBike(String departureZone, String arrivalZone, int arrivalTime, int currentTime) {
+    public synchronized boolean bookBike(String departureZone, String arrivalZone, int arrivalTime, int currentTime) {
         String upperDepartureZone = departureZone.toUpperCase();
         String upperArrivalZone = arrivalZone.toUpperCase();
         
@@ -100,6 +105,7 @@ public class BikeZoneManager implements Serializable {
         
         // Remove bike from departure zone
         currentBikes.put(upperDepartureZone, availableBikes - 1);
+        version++;
         
         // Schedule bike return to arrival zone
         scheduledReturns.get(upperArrivalZone).add(new BikeReturn(arrivalTime, 1));
@@ -120,6 +126,7 @@ public class BikeZoneManager implements Serializable {
         returns.removeIf(bikeReturn -> {
             if (bikeReturn.arrivalTime <= currentTime) {
                 currentBikes.put(zone, currentBikeCount + bikeReturn.numberOfBikes);
+                version++;
                 return true; // Remove from scheduled returns
             }
             return false; // Keep in scheduled returns
@@ -129,7 +136,7 @@ public class BikeZoneManager implements Serializable {
     /**
      * Get all zones with their current bike counts
      */
-    public Map<String, Integer> getAllZonesBikes(int currentTime) {
+    public synchronized Map<String, Integer> getAllZonesBikes(int currentTime) {
         Map<String, Integer> result = new HashMap<>();
         for (String zone : currentBikes.keySet()) {
             result.put(zone, getAvailableBikes(zone, currentTime));
@@ -140,10 +147,18 @@ public class BikeZoneManager implements Serializable {
     /**
      * Reset all zones to initial capacity (for testing/debugging)
      */
-    public void resetAllZones() {
+    public synchronized void resetAllZones() {
         for (String zone : currentBikes.keySet()) {
             currentBikes.put(zone, INITIAL_BIKES_PER_ZONE);
             scheduledReturns.get(zone).clear();
         }
+        version++;
+    }
+    
+    /**
+     * Get the number of changes of the bike counts: two equal versions give the same available bikes
+     */
+    public synchronized long getVersion() {
+        return version;
     }
 }
\ No newline at end of file
@@ -0,0 +1,190 @@
+package data;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test class to check that the incremental indexes, the periodic journeys, the batch queries and the
+ * alternative journeys give the same results as the plain catalog and searches
+ *
+ * @author emmanueladam
+ */
+public class CatalogConsistencyTest {
+    /**
+     * files of the journeys (without the bikes, whose availability depends on the weather)
+     */
+    private static final String[] FILES = {"bus.csv", "car.csv", "tram.csv", "busAutre.csv", "carAutre.csv"};
+    private static final String[] CITIES = {"a", "b", "c", "d", "e", "f", "g", "h"};
+    private static final int[] DATES = {600, 700, 730, 1200, 1700};
+
+    public static void main(String[] args) throws IOException {
+        System.out.println("=== Test de la cohérence des recherches ===\n");
+
+        // Test des mises à jour incrémentales
+        testIncrementalUpdates();
+
+        // Test des voyages périodiques
+        testPeriodicJourneys();
+
+        // Test des requêtes groupées
+        testBatchQueries();
+
+        // Test des voyages alternatifs
+        testAlternativeJourneys();
+
+        System.out.println("\n=== Tests terminés ===");
+    }
+
+    private static void testIncrementalUpdates() throws IOException {
+        System.out.println("1. Test des mises à jour incrémentales (insert, update, delete):");
+
+        JourneysList live = readCatalog();
+        var keys = new ArrayList<String>();
+        var random = new Random(7);
+        // les index sont construits avant les mises à jour
+        signature(live, "a", "f", 700);
+        int nbTrips = 0;
+        int differences = 0;
+        for (int step = 0; step < 100; step++) {
+            int operation = random.nextInt(5);
+            if (operation < 3 || keys.isEmpty()) {
+                var j = new Journey(CITIES[random.nextInt(CITIES.length)], CITIES[random.nextInt(CITIES.length)],
+                        random.nextBoolean() ? "bus" : "car", 600 + random.nextInt(10) * 100 + random.nextInt(6) * 10,
+                        5 + random.nextInt(40), random.nextInt(10), 1, 1, "feed");
+                if (j.getStart().equals(j.getStop())) continue;
+                String key = "T" + nbTrips++;
+                live.insertTrip(key, j);
+                keys.add(key);
+            } else if (operation == 3) {
+                String key = keys.get(random.nextInt(keys.size()));
+                var old = live.getTrip(key);
+                live.updateTrip(key, new Journey(old.getStart(), old.getStop(), old.getMeans(),
+                        old.getDepartureDate() + 5, old.getDuration() + 3, 1, 1, 1, "feed"));
+            } else live.deleteTrip(keys.remove(random.nextInt(keys.size())));
+
+            // le catalogue reconstruit a les mêmes voyages, ses index sont construits à la première recherche
+            var rebuilt = new JourneysList();
+            for (int c = 0; c < CityDictionary.getInstance().size(); c++) {
+                var list = live.allJourneysFrom(c);
+                if (list != null) list.forEach(rebuilt::addJourney);
+            }
+            String start = CITIES[random.nextInt(CITIES.length)];
+            String stop = CITIES[random.nextInt(CITIES.length)];
+            int date = DATES[random.nextInt(DATES.length)];
+            if (!signature(live, start, stop, date).equals(signature(rebuilt, start, stop, date))) differences++;
+        }
+        System.out.println("Trajets du flux: " + keys.size());
+        System.out.println("Différences avec le catalogue reconstruit: " + differences + " (attendu: 0)");
+        System.out.println();
+    }
+
+    private static void testPeriodicJourneys() throws IOException {
+        System.out.println("2. Test des voyages périodiques:");
+
+        JourneysList periodic = readCatalog();
+        // les occurrences des voyages périodiques sont ajoutées comme des voyages simples
+        var cloned = new JourneysList();
+        for (int c = 0; c < CityDictionary.getInstance().size(); c++) {
+            var list = periodic.allJourneysFrom(c);
+            if (list != null) list.forEach(j -> cloned.addJourney(j.clone()));
+        }
+        int differences = 0;
+        int nbQueries = 0;
+        for (String start : CITIES)
+            for (String stop : CITIES)
+                if (!start.equals(stop))
+                    for (int date : DATES) {
+                        nbQueries++;
+                        if (!signature(periodic, start, stop, date).equals(signature(cloned, start, stop, date)))
+                            differences++;
+                    }
+        System.out.println("Requêtes: " + nbQueries);
+        System.out.println("Différences avec le catalogue cloné: " + differences + " (attendu: 0)");
+        System.out.println();
+    }
+
+    private static void testBatchQueries() throws IOException {
+        System.out.println("3. Test des requêtes groupées:");
+
+        JourneysList catalog = readCatalog();
+        var random = new Random(1);
+        var queries = new ArrayList<RouteQuery>();
+        for (int i = 0; i < 500; i++)
+            queries.add(new RouteQuery(CITIES[random.nextInt(CITIES.length)], CITIES[random.nextInt(CITIES.length)],
+                    DATES[random.nextInt(DATES.length)] + random.nextInt(6) * 5));
+        var batch = catalog.findEarliestJourneys(queries, 60);
+        int differences = 0;
+        int found = 0;
+        for (int i = 0; i < queries.size(); i++) {
+            var q = queries.get(i);
+            var single = new ArrayList<ComposedJourney>();
+            catalog.findEarliestJourney(q.from(), q.to(), q.departure(), 60, single);
+            if (!single.isEmpty()) found++;
+            if (arrival(single.isEmpty() ? null : single.getFirst()) != arrival(batch.get(i))) differences++;
+        }
+        System.out.println("Requêtes: " + queries.size() + ", avec un voyage: " + found);
+        System.out.println("Différences avec les requêtes une par une: " + differences + " (attendu: 0)");
+        System.out.println();
+    }
+
+    private static void testAlternativeJourneys() throws IOException {
+        System.out.println("4. Test des voyages alternatifs (Yen):");
+
+        JourneysList catalog = TimetableFile.readCsv("bus.csv", "bus");
+        catalog.addJourneys(TimetableFile.readCsv("car.csv", "car"));
+        catalog.addJourneys(TimetableFile.readCsv("tram.csv", "tram"));
+        var paths = catalog.paths();
+        int differences = 0;
+        int nbQueries = 0;
+        for (var preference : Preference.values())
+            for (String[] q : new String[][]{{"a", "f"}, {"a", "c"}, {"b", "f"}}) {
+                // tous les voyages, les meilleurs en premier
+                var all = new ArrayList<ComposedJourney>();
+                paths.enumerate(q[0], q[1], 700, 60, (legs, length) -> all.add(paths.toComposedJourney(legs, length, 700)));
+                all.sort(preference.comparator());
+                var alternatives = new ArrayList<ComposedJourney>();
+                catalog.findAlternativeJourneys(q[0], q[1], 700, 60, preference, 5, Diversity.NONE,
+                        new SearchOptions(), alternatives);
+                nbQueries++;
+                var expected = all.stream().limit(5).map(preference::score).toList();
+                if (!expected.equals(alternatives.stream().map(preference::score).toList())) differences++;
+            }
+        System.out.println("Requêtes: " + nbQueries);
+        System.out.println("Différences avec les 5 premiers de l'énumération: " + differences + " (attendu: 0)");
+        System.out.println();
+    }
+
+    private static JourneysList readCatalog() throws IOException {
+        var catalog = new JourneysList();
+        for (String file : FILES) catalog.addJourneys(TimetableFile.readCsv(file, file));
+        return catalog;
+    }
+
+    /**
+     * @return the results of the main searches of a query, to compare two catalogs
+     */
+    private static String signature(JourneysList catalog, String start, String stop, int date) {
+        var sb = new StringBuilder();
+        List<ComposedJourney> results = new ArrayList<>();
+        catalog.findEarliestJourney(start, stop, date, 60, results);
+        sb.append("earliest ").append(results.isEmpty() ? null : arrival(results.getFirst()));
+        results.clear();
+        catalog.findBestJourneys(start, stop, date, 30, Preference.COST, 3, new SearchOptions().setMaxLegs(3), results);
+        sb.append(" best ").append(results.stream().map(Preference.COST::score).toList());
+        results.clear();
+        catalog.findLatestJourney(start, stop, date + 300, 60, results);
+        sb.append(" latest ").append(results.isEmpty() ? null : results.getFirst().getJourneys().getFirst().departureDate);
+        var direct = catalog.findDirectJourneys(start, stop, date);
+        sb.append(" direct ").append(direct == null ? 0 : direct.size());
+        return sb.toString();
+    }
+
+    /**
+     * @return the arrival date of a composed journey, -1 if there is none
+     */
+    private static int arrival(ComposedJourney journey) {
+        return journey == null ? -1 : journey.getJourneys().getLast().arrivalDate;
+    }
+}
@@ -0,0 +1,164 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * holder of the successive versions of a catalog of journeys<br>
+ * the readers (searches, serialization of the catalog for a call for proposal) get the current snapshot
+ * without any lock and can use it as long as they want: a published catalog is never modified.
+ * The writers (bookings, weather refresh, alerts) work on a copy of the current catalog, one after the other,
+ * and publish the copy as the new version in one atomic step
+ *
+ * @author emmanueladam
+ */
+public class CatalogStore {
+    /**
+     * current version of the catalog
+     */
+    private final AtomicReference<JourneysList> current;
+
+    /**
+     * @param catalog first version of the catalog, it must not be modified after this call
+     */
+    public CatalogStore(JourneysList catalog) {
+        current = new AtomicReference<>(catalog);
+    }
+
+    /**
+     * @return the current version of the catalog, that must not be modified
+     */
+    public JourneysList snapshot() {
+        return current.get();
+    }
+
+    /**
+     * apply a modification on a copy of the current catalog and publish the copy<br>
+     * the journeys of the copy are shared with the previous versions, the writer has to call
+     * ownCopy, ownOccurrence (or ownAll) on a journey before modifying it
+     *
+     * @param writer modification of the catalog, its result is returned
+     * @return the result of the writer
+     */
+    synchronized <T> T write(Function<JourneysList, T> writer) {
+        var copy = current.get().copy();
+        T result = writer.apply(copy);
+        current.set(copy);
+        return result;
+    }
+
+    /**
+     * book one place on each journey of the catalog that corresponds to a journey bought by a traveller
+     * (same departure, arrival, departure date and means)
+     *
+     * @param wanted the journey bought
+     * @return the journeys of the new version that correspond to wanted, with true if a place has been booked
+     * on it, false if there was no place left
+     */
+    public List<Booking> book(Journey wanted) {
+        return write(catalog -> {
+            var bookings = new ArrayList<Booking>();
+            var list = catalog.journeysFrom(wanted.startId);
+            if (list != null) {
+                var matching = list.stream()
+                        .filter(j -> j.stopId == wanted.stopId && j.departureDate == wanted.departureDate
+                                && j.means.equals(wanted.means))
+                        .toList();
+                for (Journey j : matching) book(catalog, catalog.ownCopy(j), wanted, bookings);
+            }
+            var periodicList = catalog.periodicFrom(wanted.startId);
+            if (periodicList != null) {
+                var matching = periodicList.stream()
+                        .filter(p -> p.getFirst().stopId == wanted.stopId && p.getFirst().means.equals(wanted.means)
+                                && p.rankOf(wanted.departureDate) >= 0)
+                        .toList();
+                // the occurrence is kept by the periodic journey, with its remaining places
+                for (var p : matching)
+                    book(catalog, catalog.ownOccurrence(p, p.rankOf(wanted.departureDate)), wanted, bookings);
+            }
+            return bookings;
+        });
+    }
+
+    /**
+     * book one place on a journey that belongs only to the new version of the catalog
+     */
+    private static void book(JourneysList catalog, Journey booked, Journey wanted, List<Booking> bookings) {
+        bookings.add(new Booking(booked, booked.bookPlace(wanted.departureDate)));
+        // the journey can no more be proposed: the cached searches that use it are obsolete
+        // (a bike taken changes the version of the BikeZoneManager, that is checked by the cache)
+        if (!booked.meansType.isBike() && booked.getPlaces() == 0) catalog.routesChanged();
+    }
+
+    /**
+     * publish a version of the catalog where the journeys are adjusted to the current weather
+     */
+    public void refreshWeatherAdjustments() {
+        write(catalog -> {
+            catalog.ownAll();
+            catalog.refreshWeatherAdjustments();
+            return null;
+        });
+    }
+
+    /**
+     * publish a version of the catalog without the journeys between two cities (in both directions),
+     * after an alert on the road between them
+     *
+     * @param start a city
+     * @param stop  another city
+     */
+    public void removeJourneysBetween(String start, String stop) {
+        var cities = CityDictionary.getInstance();
+        int a = cities.find(start);
+        int b = cities.find(stop);
+        if (a < 0 || b < 0) return;
+        write(catalog -> {
+            catalog.removeIf(j -> (j.startId == a && j.stopId == b) || (j.startId == b && j.stopId == a));
+            return null;
+        });
+    }
+
+    /**
+     * publish a version of the catalog with a new trip, announced by a live feed for example
+     *
+     * @param key stable key of the trip
+     * @param j   the journey of the trip
+     * @return false if the key is already used (the new version is the same as the previous one)
+     */
+    public boolean insertTrip(String key, Journey j) {
+        return write(catalog -> catalog.insertTrip(key, j));
+    }
+
+    /**
+     * publish a version of the catalog where a trip is replaced by a new journey
+     *
+     * @param key key of the trip
+     * @param j   the new journey of the trip
+     * @return the previous journey of the trip, null if the key is unknown
+     */
+    public Journey updateTrip(String key, Journey j) {
+        return write(catalog -> catalog.updateTrip(key, j));
+    }
+
+    /**
+     * publish a version of the catalog without a trip
+     *
+     * @param key key of the trip
+     * @return the journey of the trip, null if the key is unknown
+     */
+    public Journey deleteTrip(String key) {
+        return write(catalog -> catalog.deleteTrip(key));
+    }
+
+    /**
+     * result of the booking of a journey
+     *
+     * @param journey the journey, as published in the new version of the catalog
+     * @param success true if a place has been booked
+     */
+    public record Booking(Journey journey, boolean success) {
+    }
+}
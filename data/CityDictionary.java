@@ -0,0 +1,103 @@
+package data;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * dictionary of the cities: each normalized city name (trimmed, upper case) receives a dense int id<br>
+ * the ids are given once, when the journeys are built, so that the searches only compare and index ints.
+ * The dictionary is shared by all the agents of the JVM, the ids are not serialized
+ * (a deserialized journey asks again for its ids)
+ *
+ * @author emmanueladam
+ */
+public class CityDictionary {
+    private static CityDictionary instance;
+
+    /**
+     * id of each normalized name
+     */
+    private final Map<String, Integer> ids;
+    /**
+     * normalized name of each id
+     */
+    private volatile String[] names;
+    /**
+     * nb of cities
+     */
+    private volatile int size;
+
+    private CityDictionary() {
+        ids = new ConcurrentHashMap<>();
+        names = new String[64];
+    }
+
+    /**
+     * Get the singleton instance
+     */
+    public static synchronized CityDictionary getInstance() {
+        if (instance == null) {
+            instance = new CityDictionary();
+        }
+        return instance;
+    }
+
+    /**
+     * @return the name used for a city in the catalogs (trimmed, upper case)
+     */
+    public static String normalize(String city) {
+        return city.trim().toUpperCase();
+    }
+
+    /**
+     * @param city name of a city
+     * @return id of the city, a new id is given to an unknown city
+     */
+    public int idOf(String city) {
+        var id = ids.get(city);
+        if (id == null) id = register(normalize(city));
+        return id;
+    }
+
+    /**
+     * @param city name of a city
+     * @return id of the city, -1 if the city is unknown
+     */
+    public int find(String city) {
+        var id = ids.get(city);
+        if (id == null) id = ids.get(normalize(city));
+        return (id == null) ? -1 : id;
+    }
+
+    /**
+     * @param city name of a city
+     * @return the normalized name of the city, shared by all the journeys of this city
+     */
+    public String intern(String city) {
+        return nameOf(idOf(city));
+    }
+
+    /**
+     * @return normalized name of the city of id 'id'
+     */
+    public String nameOf(int id) {
+        return names[id];
+    }
+
+    /**
+     * @return nb of cities in the dictionary (the ids are between 0 and size - 1)
+     */
+    public int size() {
+        return size;
+    }
+
+    private synchronized int register(String name) {
+        var id = ids.get(name);
+        if (id != null) return id;
+        if (size == names.length) names = Arrays.copyOf(names, size * 2);
+        names[size] = name;
+        ids.put(name, size);
+        return size++;
+    }
+}
@@ -0,0 +1,306 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.stream.IntStream;
+
+/**
+ * timetable stored in the heap as columns of primitive values<br>
+ * the index of a city is its id in the city dictionary
+ *
+ * @author emmanueladam
+ */
+public class ColumnarCatalog extends Timetable {
+    /**
+     * nb of cities known by the city dictionary when the catalog was built
+     */
+    private final int nbCities;
+    /**
+     * index of the first journey of each departure city (nbCities + 1 values)
+     */
+    private final int[] firstTrip;
+    /**
+     * id of the departure city of each journey
+     */
+    private final int[] start;
+    /**
+     * id of the arrival city of each journey
+     */
+    private final int[] stop;
+    /**
+     * departure date of each journey, format hhmm
+     */
+    private final int[] departure;
+    /**
+     * base duration of each journey, in minutes
+     */
+    private final int[] duration;
+    /**
+     * base cost of each journey
+     */
+    private final double[] cost;
+    private final int[] co2;
+    private final int[] confort;
+    /**
+     * remaining places of each journey
+     */
+    private final int[] places;
+    /**
+     * index, in the table of names, of the means of each journey
+     */
+    private final int[] means;
+    /**
+     * index, in the table of names, of the agency that proposes each journey (-1 if none)
+     */
+    private final int[] provider;
+    /**
+     * names of the means and of the agencies
+     */
+    private final String[] names;
+    /**
+     * means type of each name of the table (null for the names of agencies)
+     */
+    private final Means[] meansTypes;
+    /**
+     * timed journeys (not bikes) sorted by departure date then by duration, for the earliest arrival scans
+     */
+    private final int[] byDeparture;
+
+    /**
+     * build the columns from a catalog
+     *
+     * @param catalog the journeys to store
+     */
+    public ColumnarCatalog(JourneysList catalog) {
+        this(rowsOf(catalog));
+    }
+
+    /**
+     * build the columns from journeys read one by one (see TimetableFile.readColumns)
+     *
+     * @param rows the journeys to store
+     */
+    ColumnarCatalog(Rows rows) {
+        nbCities = CityDictionary.getInstance().size();
+        int n = rows.size;
+        // the journeys grouped by departure city, by departure date inside a group
+        int[] order = IntStream.range(0, n).boxed()
+                .sorted(Comparator.comparingInt((Integer i) -> rows.start[i]).thenComparingInt(i -> rows.departure[i]))
+                .mapToInt(Integer::intValue).toArray();
+        firstTrip = new int[nbCities + 1];
+        start = new int[n];
+        stop = new int[n];
+        departure = new int[n];
+        duration = new int[n];
+        cost = new double[n];
+        co2 = new int[n];
+        confort = new int[n];
+        places = new int[n];
+        means = new int[n];
+        provider = new int[n];
+        for (int i = 0; i < n; i++) {
+            int r = order[i];
+            start[i] = rows.start[r];
+            stop[i] = rows.stop[r];
+            departure[i] = rows.departure[r];
+            duration[i] = rows.duration[r];
+            cost[i] = rows.cost[r];
+            co2[i] = rows.co2[r];
+            confort[i] = rows.confort[r];
+            places[i] = rows.places[r];
+            means[i] = rows.means[r];
+            provider[i] = rows.provider[r];
+            firstTrip[start[i] + 1]++;
+        }
+        for (int c = 0; c < nbCities; c++) firstTrip[c + 1] += firstTrip[c];
+        names = new String[rows.table.size()];
+        rows.table.forEach((s, k) -> names[k] = s);
+        meansTypes = new Means[names.length];
+        for (int m : means) meansTypes[m] = Means.of(names[m]);
+        byDeparture = sortedTimedTrips();
+    }
+
+    /**
+     * @return the rows of the journeys of a catalog (the occurrences of the periodic journeys included)
+     */
+    private static Rows rowsOf(JourneysList catalog) {
+        var rows = new Rows();
+        for (int c = 0; c < CityDictionary.getInstance().size(); c++) {
+            var list = catalog.allJourneysFrom(c);
+            if (list != null)
+                for (Journey j : list)
+                    rows.add(j.startId, j.stopId, j.means, j.departureDate, j.baseDuration, j.baseCost, j.co2,
+                            j.confort, j.getPlaces(), j.proposedBy);
+        }
+        return rows;
+    }
+
+    private int[] sortedTimedTrips() {
+        var timed = new ArrayList<Integer>();
+        for (int i = 0; i < start.length; i++)
+            if (!meansTypes[means[i]].isBike()) timed.add(i);
+        timed.sort(Comparator.comparingInt((Integer i) -> departure[i]).thenComparingInt(i -> duration[i]));
+        int[] result = new int[timed.size()];
+        for (int i = 0; i < result.length; i++) result[i] = timed.get(i);
+        return result;
+    }
+
+    @Override
+    int nbCities() {
+        return nbCities;
+    }
+
+    @Override
+    int cityIndex(String city) {
+        int id = CityDictionary.getInstance().find(city);
+        return (id < nbCities) ? id : -1;
+    }
+
+    @Override
+    String cityName(int city) {
+        return CityDictionary.getInstance().nameOf(city);
+    }
+
+    @Override
+    int firstTrip(int c) {
+        return firstTrip[c];
+    }
+
+    @Override
+    public int size() {
+        return start.length;
+    }
+
+    @Override
+    int start(int trip) {
+        return start[trip];
+    }
+
+    @Override
+    int stop(int trip) {
+        return stop[trip];
+    }
+
+    @Override
+    int departure(int trip) {
+        return departure[trip];
+    }
+
+    @Override
+    int baseDuration(int trip) {
+        return duration[trip];
+    }
+
+    @Override
+    double baseCost(int trip) {
+        return cost[trip];
+    }
+
+    @Override
+    int co2(int trip) {
+        return co2[trip];
+    }
+
+    @Override
+    int confort(int trip) {
+        return confort[trip];
+    }
+
+    @Override
+    String meansName(int trip) {
+        return names[means[trip]];
+    }
+
+    @Override
+    Means meansType(int trip) {
+        return meansTypes[means[trip]];
+    }
+
+    @Override
+    String provider(int trip) {
+        return (provider[trip] < 0) ? null : names[provider[trip]];
+    }
+
+    @Override
+    int places(int trip) {
+        return places[trip];
+    }
+
+    @Override
+    void takePlace(int trip) {
+        places[trip]--;
+    }
+
+    @Override
+    int nbTimed() {
+        return byDeparture.length;
+    }
+
+    @Override
+    int timed(int k) {
+        return byDeparture[k];
+    }
+
+    /**
+     * journeys added one by one, in the order of the file, before they are grouped by departure city<br>
+     * the columns grow like an ArrayList, no Journey object is needed
+     */
+    static final class Rows {
+        private int size;
+        private int[] start = new int[16];
+        private int[] stop = new int[16];
+        private int[] departure = new int[16];
+        private int[] duration = new int[16];
+        private double[] cost = new double[16];
+        private int[] co2 = new int[16];
+        private int[] confort = new int[16];
+        private int[] places = new int[16];
+        private int[] means = new int[16];
+        private int[] provider = new int[16];
+        /**
+         * index of each name of means or of agency
+         */
+        private final HashMap<String, Integer> table = new HashMap<>();
+
+        /**
+         * add a journey
+         *
+         * @param start      id of the departure city
+         * @param stop       id of the arrival city
+         * @param means      name of the means
+         * @param places     nb of places
+         * @param provider   name of the agency that proposes the journey, null if none
+         */
+        void add(int start, int stop, String means, int departure, int duration, double cost, int co2, int confort,
+                 int places, String provider) {
+            if (size == this.start.length) grow();
+            this.start[size] = start;
+            this.stop[size] = stop;
+            this.departure[size] = departure;
+            this.duration[size] = duration;
+            this.cost[size] = cost;
+            this.co2[size] = co2;
+            this.confort[size] = confort;
+            this.places[size] = places;
+            this.means[size] = table.computeIfAbsent(means, s -> table.size());
+            this.provider[size] = (provider == null) ? -1 : table.computeIfAbsent(provider, s -> table.size());
+            size++;
+        }
+
+        private void grow() {
+            int n = 2 * size;
+            start = Arrays.copyOf(start, n);
+            stop = Arrays.copyOf(stop, n);
+            departure = Arrays.copyOf(departure, n);
+            duration = Arrays.copyOf(duration, n);
+            cost = Arrays.copyOf(cost, n);
+            co2 = Arrays.copyOf(co2, n);
+            confort = Arrays.copyOf(confort, n);
+            places = Arrays.copyOf(places, n);
+            means = Arrays.copyOf(means, n);
+            provider = Arrays.copyOf(provider, n);
+        }
+    }
+}
@@ -107,7 +107,7 @@ public class ComposedJourney implements Serializable {
         }
         stop = oneJourney.stop;
         arrivalDate = oneJourney.arrivalDate;
-        duration = ((arrivalDate / 100) * 60 + arrivalDate % 100) - ((departureDate / 100) * 60 + departureDate % 100);
+        duration = Journey.toMinutes(arrivalDate) - Journey.toMinutes(departureDate);
     }
 
     /**
@@ -130,7 +130,7 @@ public class ComposedJourney implements Serializable {
         departureDate = journeys.getFirst().departureDate;
         stop = journeys.get(nb - 1).stop;
         arrivalDate = journeys.get(nb - 1).arrivalDate;
-        duration = ((arrivalDate / 100) * 60 + arrivalDate % 100) - ((departureDate / 100) * 60 + departureDate % 100);
+        duration = Journey.toMinutes(arrivalDate) - Journey.toMinutes(departureDate);
     }
 
     @Override
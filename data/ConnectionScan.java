@@ -0,0 +1,649 @@
+package data;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.IntStream;
+
+/**
+ * earliest arrival engine based on the Connection Scan Algorithm<br>
+ * the timed journeys of a catalog are stored in one array sorted by departure date,
+ * a query scans this array once from the wanted departure date;
+ * the bike journeys (that can be taken anytime) are kept apart and relaxed as transfers
+ * each time the arrival date of a city is improved. Only the places of a connection are checked: the weather
+ * forbids only the bikes, it is read once by search (see TransferLayer.isAllowed)
+ *
+ * @author emmanueladam
+ */
+class ConnectionScan {
+    /**
+     * nb of cities known by the city dictionary when the engine was built
+     */
+    private final int nbCities;
+    /**
+     * timed journeys, sorted by departure date then by arrival date
+     */
+    private final Journey[] connections;
+    /**
+     * id of the origin of each connection
+     */
+    private final int[] connectionStart;
+    /**
+     * id of the arrival of each connection
+     */
+    private final int[] connectionStop;
+    /**
+     * numbers of the connections sorted by arrival date, for the searches made backwards
+     */
+    private final int[] byArrival;
+    /**
+     * bike journeys of the catalog
+     */
+    private final TransferLayer transfers;
+
+    /**
+     * build the connection array of a catalog
+     *
+     * @param catalog the journeys, with the occurrences of the periodic journeys
+     */
+    ConnectionScan(JourneysList catalog) {
+        nbCities = CityDictionary.getInstance().size();
+        var timed = new ArrayList<Journey>();
+        for (int c = 0; c < nbCities; c++) {
+            var list = catalog.allJourneysFrom(c);
+            if (list == null) continue;
+            for (Journey j : list)
+                if (!j.meansType.isBike()) timed.add(j);
+        }
+        timed.sort(Comparator.comparingInt((Journey j) -> j.departureDate).thenComparingInt(j -> j.arrivalDate));
+        connections = timed.toArray(new Journey[0]);
+        connectionStart = new int[connections.length];
+        connectionStop = new int[connections.length];
+        for (int i = 0; i < connections.length; i++) {
+            connectionStart[i] = connections[i].startId;
+            connectionStop[i] = connections[i].stopId;
+        }
+        byArrival = IntStream.range(0, connections.length).boxed()
+                .sorted(Comparator.comparingInt(i -> connections[i].arrivalDate)).mapToInt(i -> i).toArray();
+        transfers = catalog.transfers();
+    }
+
+    private ConnectionScan(int nbCities, Journey[] connections, int[] byArrival, TransferLayer transfers) {
+        this.nbCities = nbCities;
+        this.connections = connections;
+        this.byArrival = byArrival;
+        this.transfers = transfers;
+        connectionStart = new int[connections.length];
+        connectionStop = new int[connections.length];
+        for (int i = 0; i < connections.length; i++) {
+            connectionStart[i] = connections[i].startId;
+            connectionStop[i] = connections[i].stopId;
+        }
+    }
+
+    /**
+     * give the engine of the catalog after the addition of a timed journey: the journey is inserted at its
+     * place in the sorted arrays, nothing is sorted again
+     *
+     * @param j the journey added to the catalog (not a bike)
+     * @return a new engine, null if the journey goes to a city unknown by this engine (it has to be built again)
+     */
+    ConnectionScan withConnection(Journey j) {
+        if (j.startId >= nbCities || j.stopId >= nbCities) return null;
+        int n = connections.length;
+        // after the connections that leave before j, or at the same date and arrive before or with it
+        int low = 0;
+        int high = n;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            var c = connections[mid];
+            if (c.departureDate < j.departureDate
+                    || (c.departureDate == j.departureDate && c.arrivalDate <= j.arrivalDate)) low = mid + 1;
+            else high = mid;
+        }
+        int at = low;
+        var newConnections = new Journey[n + 1];
+        System.arraycopy(connections, 0, newConnections, 0, at);
+        newConnections[at] = j;
+        System.arraycopy(connections, at, newConnections, at + 1, n - at);
+        int rank = lastArrivalBefore(j.arrivalDate) + 1;
+        var newByArrival = new int[n + 1];
+        for (int k = 0, l = 0; k <= n; k++) {
+            if (k == rank) newByArrival[k] = at;
+            else {
+                int i = byArrival[l++];
+                newByArrival[k] = (i >= at) ? i + 1 : i;
+            }
+        }
+        return new ConnectionScan(nbCities, newConnections, newByArrival, transfers);
+    }
+
+    /**
+     * give the engine of the catalog after the removal of a timed journey
+     *
+     * @param j the journey removed from the catalog (not a bike)
+     * @return a new engine without the journey, this if the journey is not one of its connections
+     */
+    ConnectionScan withoutConnection(Journey j) {
+        int at = indexOf(c -> c == j, j.departureDate);
+        if (at < 0) return this;
+        int n = connections.length;
+        var newConnections = new Journey[n - 1];
+        System.arraycopy(connections, 0, newConnections, 0, at);
+        System.arraycopy(connections, at + 1, newConnections, at, n - at - 1);
+        var newByArrival = new int[n - 1];
+        for (int k = 0, l = 0; k < n; k++) {
+            int i = byArrival[k];
+            if (i != at) newByArrival[l++] = (i > at) ? i - 1 : i;
+        }
+        return new ConnectionScan(nbCities, newConnections, newByArrival, transfers);
+    }
+
+    /**
+     * give the engine of the catalog after a journey has been replaced by a copy, to book places on it:
+     * the copy takes the place of the journey, nothing is sorted again
+     *
+     * @param replaced test that recognizes the replaced journey
+     * @param copy     the copy, with the same cities and dates (not a bike)
+     * @return a new engine that scans the copy, null if the replaced journey is not one of its connections
+     */
+    ConnectionScan withCopy(Predicate<Journey> replaced, Journey copy) {
+        int at = indexOf(replaced, copy.departureDate);
+        if (at < 0) return null;
+        var newConnections = connections.clone();
+        newConnections[at] = copy;
+        return new ConnectionScan(nbCities, newConnections, byArrival, transfers);
+    }
+
+    /**
+     * @param journey test that recognizes a connection
+     * @param date    departure date of the connection
+     * @return index of the connection, -1 if there is none
+     */
+    private int indexOf(Predicate<Journey> journey, int date) {
+        for (int i = firstConnectionAfter(date); i < connections.length && connections[i].departureDate == date; i++)
+            if (journey.test(connections[i])) return i;
+        return -1;
+    }
+
+    /**
+     * compute the journey that reaches 'stop' as soon as possible
+     *
+     * @param from  id of the departure
+     * @param to    id of the arrival
+     * @param date  ideal departure date
+     * @param late  additional allowed time added to the departure date for the first timed journey (in mn.)
+     * @return the earliest arrival journey, null if stop cannot be reached
+     */
+    ComposedJourney earliestArrival(int from, int to, int date, int late) {
+        int nb = nbCities;
+        if (from < 0 || to < 0 || from >= nb || to >= nb || from == to) return null;
+        return earliestArrivals(from, new int[]{to}, date, late).journeyTo(to);
+    }
+
+    /**
+     * compute the earliest arrival dates from one departure to several arrivals, in one scan<br>
+     * the scan stops when no connection can improve the arrival date of one of the targets
+     *
+     * @param from    id of the departure
+     * @param targets ids of the arrivals
+     * @param date    ideal departure date
+     * @param late    additional allowed time added to the departure date for the first timed journey (in mn.)
+     * @return the arrival dates, from which the journey to each target can be built
+     */
+    Arrivals earliestArrivals(int from, int[] targets, int date, int late) {
+        return scan(from, targets, date, late, Integer.MAX_VALUE);
+    }
+
+    /**
+     * compute the earliest arrival dates from one departure to all the cities that can be reached before
+     * a date (isochrone), in one scan<br>
+     * the scan stops at the first connection that leaves after the limit
+     *
+     * @param from  id of the departure
+     * @param date  ideal departure date
+     * @param late  additional allowed time added to the departure date for the first timed journey (in mn.)
+     * @param limit latest arrival date
+     * @return the arrival dates, the cities reached after the limit being not reached
+     */
+    Arrivals arrivalsBefore(int from, int date, int late, int limit) {
+        var arrivals = scan(from, null, date, late, limit);
+        arrivals.forgetAfter(limit);
+        return arrivals;
+    }
+
+    /**
+     * compute the earliest arrival journeys of several queries that leave the same city, at any dates<br>
+     * the dates are scanned from the latest to the earliest without clearing the arrival dates, as in profile:
+     * what can be reached from a date can be reached from an earlier one by waiting at the departure, so
+     * the scan of an earlier date starts with the arrival dates of the later ones and stops as soon as it
+     * cannot improve them. These arrival dates may come from a first timed journey that leaves after the
+     * date + late of an earlier query: such a journey is searched again by its own scan
+     *
+     * @param from  id of the departure
+     * @param to    ids of the arrivals of the queries
+     * @param dates departure dates of the queries
+     * @param late  additional allowed time added to the departure date for the first timed journey (in mn.)
+     * @return the earliest arrival journey of each query (null if there is none)
+     */
+    ComposedJourney[] earliestArrivals(int from, int[] to, int[] dates, int late) {
+        int nb = nbCities;
+        var journeys = new ComposedJourney[to.length];
+        if (from < 0 || from >= nb) return journeys;
+        // indexes of the queries, by decreasing date
+        var order = IntStream.range(0, to.length).boxed()
+                .sorted(Comparator.comparingInt((Integer q) -> dates[q]).reversed()).toList();
+        int[] arrival = new int[nb];
+        Arrays.fill(arrival, Integer.MAX_VALUE);
+        var arrivals = new Arrivals(from, arrival, new Journey[nb], new int[nb]);
+        var bikes = bikes(dates[order.getLast()]);
+        for (int k = 0; k < order.size(); ) {
+            int date = dates[order.get(k)];
+            int end = k;
+            while (end < order.size() && dates[order.get(end)] == date) end++;
+            int[] targets = order.subList(k, end).stream().mapToInt(q -> to[q]).distinct().toArray();
+            scan(arrivals, bikes, targets, date, Journey.addTime(date, late), Integer.MAX_VALUE);
+            // the legs are changed by the next dates: the journeys are built now
+            for (int q : order.subList(k, end)) {
+                var journey = arrivals.journeyTo(to[q]);
+                if (journey != null && leavesAfter(journey, from, Journey.addTime(date, late)))
+                    journey = earliestArrivals(from, new int[]{to[q]}, date, late).journeyTo(to[q]);
+                journeys[q] = journey;
+            }
+            k = end;
+        }
+        return journeys;
+    }
+
+    /**
+     * @return true if the first journey of a composed journey is a timed journey that leaves 'from' after a date
+     */
+    private static boolean leavesAfter(ComposedJourney journey, int from, int date) {
+        var first = journey.getJourneys().getFirst();
+        return first.startId == from && !first.meansType.isBike() && first.departureDate > date;
+    }
+
+    /**
+     * scan the connections from a departure date
+     *
+     * @param targets ids of the arrivals, null for all the cities
+     * @param limit   latest useful arrival date
+     */
+    private Arrivals scan(int from, int[] targets, int date, int late, int limit) {
+        int nb = nbCities;
+        int[] arrival = new int[nb];
+        Arrays.fill(arrival, Integer.MAX_VALUE);
+        // leg used to reach each city, and departure date of this leg when it is a bike
+        var arrivals = new Arrivals(from, arrival, new Journey[nb], new int[nb]);
+        if (from < 0 || from >= nb) return arrivals;
+        scan(arrivals, bikes(date), targets, date, Journey.addTime(date, late), limit);
+        return arrivals;
+    }
+
+    /**
+     * scan the connections from a departure date, improving the arrival dates already known
+     *
+     * @param arrivals             arrival dates and legs, from a previous scan of a later date or empty
+     * @param bikes                relaxation of the bikes, null if the weather does not allow them
+     * @param targets              ids of the arrivals, null for all the cities
+     * @param latestFirstDeparture latest departure date of a timed journey from the departure
+     * @param limit                latest useful arrival date
+     */
+    private void scan(Arrivals arrivals, Bikes bikes, int[] targets, int date,
+                      int latestFirstDeparture, int limit) {
+        int nb = nbCities;
+        int from = arrivals.from;
+        int[] arrival = arrivals.arrival;
+        Journey[] inLeg = arrivals.inLeg;
+        int[] bikeDeparture = arrivals.bikeDeparture;
+        arrival[from] = date;
+        relaxBikes(from, arrival, inLeg, bikeDeparture, bikes);
+        var isTarget = new BitSet(nb);
+        if (targets != null) for (int t : targets) if (t >= 0 && t < nb) isTarget.set(t);
+        // latest arrival date of the targets, computed again only when the arrival date of a target changes
+        int bound = limit;
+        boolean targetChanged = true;
+        for (int i = firstConnectionAfter(date); i < connections.length; i++) {
+            Journey c = connections[i];
+            if (targetChanged && targets != null) {
+                bound = Math.min(limit, latestArrival(arrival, targets));
+                targetChanged = false;
+            }
+            if (c.departureDate > bound) break; // no connection can improve the arrival date of a target
+            int o = connectionStart[i];
+            if (arrival[o] > c.departureDate) continue;
+            if (o == from && c.departureDate > latestFirstDeparture) continue;
+            int d = connectionStop[i];
+            if (c.arrivalDate >= arrival[d] || c.arrivalDate > limit) continue;
+            if (c.getPlaces() <= 0) continue;
+            arrival[d] = c.arrivalDate;
+            inLeg[d] = c;
+            boolean relaxed = relaxBikes(d, arrival, inLeg, bikeDeparture, bikes);
+            targetChanged |= isTarget.get(d) || relaxed;
+        }
+    }
+
+    /**
+     * compute the profile of the journeys from 'from' to 'to' between two dates: for each departure date
+     * of a timed journey that leaves 'from' in the range, the journey that arrives the earliest; a departure
+     * is kept only if it arrives before all the later departures<br>
+     * the departures are scanned from the latest to the earliest, without clearing the arrival dates:
+     * what can be reached from a departure can be reached from an earlier one by waiting, so the dates
+     * of the previous departures bound the scan of the next one (as in rRAPTOR)
+     *
+     * @param from     id of the departure
+     * @param to       id of the arrival
+     * @param earliest first departure date of the range
+     * @param latest   last departure date of the range
+     * @return the journeys of the profile, by departure date
+     */
+    List<ComposedJourney> profile(int from, int to, int earliest, int latest) {
+        int nb = nbCities;
+        var profile = new ArrayList<ComposedJourney>();
+        if (from < 0 || to < 0 || from >= nb || to >= nb || from == to) return profile;
+        var departures = new TreeSet<Integer>(Comparator.reverseOrder());
+        for (int i = firstConnectionAfter(earliest); i < connections.length && connections[i].departureDate <= latest; i++)
+            if (connectionStart[i] == from) departures.add(connections[i].departureDate);
+        int[] arrival = new int[nb];
+        Arrays.fill(arrival, Integer.MAX_VALUE);
+        Journey[] inLeg = new Journey[nb];
+        int[] bikeDeparture = new int[nb];
+        var arrivals = new Arrivals(from, arrival, inLeg, bikeDeparture);
+        var bikes = bikes(earliest);
+        for (int date : departures) {
+            int previous = arrival[to];
+            arrival[from] = date;
+            relaxBikes(from, arrival, inLeg, bikeDeparture, bikes);
+            for (int i = firstConnectionAfter(date); i < connections.length; i++) {
+                Journey c = connections[i];
+                if (c.departureDate > arrival[to]) break;
+                int o = connectionStart[i];
+                if (arrival[o] > c.departureDate) continue;
+                if (o == from && c.departureDate > latest) continue;
+                int d = connectionStop[i];
+                if (c.arrivalDate >= arrival[d]) continue;
+                if (c.getPlaces() <= 0) continue;
+                arrival[d] = c.arrivalDate;
+                inLeg[d] = c;
+                relaxBikes(d, arrival, inLeg, bikeDeparture, bikes);
+            }
+            // the legs are changed by the next departures: the journey is built now
+            if (arrival[to] < previous) profile.add(arrivals.journeyTo(to));
+        }
+        Collections.reverse(profile);
+        return profile;
+    }
+
+    /**
+     * @return the latest arrival date of the targets (Integer.MAX_VALUE if one of them is not reached)
+     */
+    private static int latestArrival(int[] arrival, int[] targets) {
+        int latest = Integer.MIN_VALUE;
+        for (int t : targets) {
+            if (t < 0 || t >= arrival.length) continue;
+            latest = Math.max(latest, arrival[t]);
+        }
+        return latest;
+    }
+
+    /**
+     * @param date date of the beginning of a search
+     * @return the relaxation of the bikes for the search, null if the weather does not allow them (it is read
+     * once by search)
+     */
+    private Bikes bikes(int date) {
+        if (!TransferLayer.isAllowed()) return null;
+        int nb = nbCities;
+        // without a city lacking bikes, the fastest chains of transfers can be taken from the hierarchy
+        var hierarchy = transfers.size() > 0 && transfers.hasBikesEverywhere(date) ? transfers.hierarchy() : null;
+        return new Bikes(new int[nb], new BitSet(nb), hierarchy, hierarchy == null ? null : new int[nb],
+                hierarchy == null ? null : new int[nb], hierarchy == null ? null : new int[nb]);
+    }
+
+    /**
+     * propagate the arrival date of a city through the bike journeys (and chains of bike journeys)<br>
+     * if each city has a bike, the fastest chains from the city are taken from the hierarchy of the transfers;
+     * else a city waits at most once in the stack: when it is taken, its best arrival date is relaxed
+     *
+     * @param bikes relaxation of the bikes, null if the weather does not allow them
+     * @return true if the arrival date of a city has been improved
+     */
+    private boolean relaxBikes(int city, int[] arrival, Journey[] inLeg, int[] bikeDeparture, Bikes bikes) {
+        if (bikes == null || transfers.first(city) == transfers.end(city)) return false;
+        if (bikes.hierarchy != null) return relaxChains(city, arrival, inLeg, bikeDeparture, bikes);
+        int[] toRelax = bikes.toRelax;
+        BitSet waiting = bikes.waiting;
+        boolean improved = false;
+        int size = 0;
+        toRelax[size++] = city;
+        waiting.set(city);
+        while (size > 0) {
+            int o = toRelax[--size];
+            waiting.clear(o);
+            for (int e = transfers.first(o); e < transfers.end(o); e++) {
+                int d = transfers.stop(e);
+                int t = Journey.addTime(arrival[o], transfers.duration(e));
+                if (t >= arrival[d]) continue;
+                if (!transfers.hasAvailablePlaces(e, arrival[o])) continue;
+                arrival[d] = t;
+                inLeg[d] = transfers.edge(e);
+                bikeDeparture[d] = arrival[o];
+                improved = true;
+                if (!waiting.get(d)) {
+                    toRelax[size++] = d;
+                    waiting.set(d);
+                }
+            }
+        }
+        return improved;
+    }
+
+    /**
+     * propagate the arrival date of a city through the fastest chains of transfers of the hierarchy<br>
+     * the arrival dates are closed by the transfers before the call, so the city before the last transfer
+     * of an improved chain is improved too: the legs can be followed back to the city
+     *
+     * @return true if the arrival date of a city has been improved
+     */
+    private boolean relaxChains(int city, int[] arrival, Journey[] inLeg, int[] bikeDeparture, Bikes bikes) {
+        int[] duration = bikes.duration;
+        int[] last = bikes.last;
+        int[] reached = bikes.reached;
+        boolean improved = false;
+        int nb = bikes.hierarchy.chainsFrom(city, duration, last, reached);
+        for (int i = 0; i < nb; i++) {
+            int d = reached[i];
+            int t = Journey.addTime(arrival[city], duration[d]);
+            if (t >= arrival[d]) continue;
+            int e = last[d];
+            arrival[d] = t;
+            inLeg[d] = transfers.edge(e);
+            bikeDeparture[d] = Journey.subtractTime(t, transfers.duration(e));
+            improved = true;
+        }
+        return improved;
+    }
+
+    /**
+     * relaxation of the bikes during a search
+     *
+     * @param toRelax   stack of the cities to relax
+     * @param waiting   cities in the stack
+     * @param hierarchy hierarchy of the transfers, null if they are relaxed one by one
+     * @param duration  durations of the chains from the city relaxed (with the hierarchy)
+     * @param last      last transfers of these chains
+     * @param reached   cities reached by these chains
+     */
+    private record Bikes(int[] toRelax, BitSet waiting, TransferHierarchy hierarchy, int[] duration, int[] last,
+                         int[] reached) {
+    }
+
+    /**
+     * compute the journey from 'from' that reaches 'to' before a date and leaves as late as possible<br>
+     * the connections are scanned backwards, by decreasing arrival date, from the arrival: the latest date
+     * at which a city has to be left to reach 'to' in time is propagated to the departures of the connections,
+     * and through the bike journeys that arrive in the city
+     *
+     * @param from id of the departure
+     * @param to   id of the arrival
+     * @param date latest arrival date
+     * @param late additional allowed time before the arrival date for the last timed journey (in mn.)
+     * @return the latest departure journey, null if 'to' cannot be reached in time
+     */
+    ComposedJourney latestDeparture(int from, int to, int date, int late) {
+        int nb = nbCities;
+        if (from < 0 || to < 0 || from >= nb || to >= nb || from == to) return null;
+        int[] departure = new int[nb];
+        Arrays.fill(departure, Integer.MIN_VALUE);
+        // leg used to leave each city, and departure date of this leg when it is a bike
+        Journey[] outLeg = new Journey[nb];
+        int[] bikeDeparture = new int[nb];
+        int[] toRelax = TransferLayer.isAllowed() ? new int[nb] : null;
+        var waiting = new BitSet(nb);
+        departure[to] = date;
+        relaxBikesBackwards(to, departure, outLeg, bikeDeparture, toRelax, waiting);
+        int earliestLastArrival = Journey.subtractTime(date, late);
+        for (int k = lastArrivalBefore(date); k >= 0; k--) {
+            int i = byArrival[k];
+            Journey c = connections[i];
+            if (c.arrivalDate < departure[from]) break;
+            int d = connectionStop[i];
+            if (c.arrivalDate > departure[d]) continue;
+            if (d == to && c.arrivalDate < earliestLastArrival) continue;
+            int o = connectionStart[i];
+            if (c.departureDate <= departure[o]) continue;
+            if (c.getPlaces() <= 0) continue;
+            departure[o] = c.departureDate;
+            outLeg[o] = c;
+            relaxBikesBackwards(o, departure, outLeg, bikeDeparture, toRelax, waiting);
+        }
+        if (outLeg[from] == null) return null;
+        var legs = new ArrayList<Journey>();
+        for (int city = from; city != to; ) {
+            Journey leg = outLeg[city];
+            if (leg.meansType.isBike()) leg = TransferLayer.takenAt(leg, bikeDeparture[city]); // bike can be taken anytime
+            legs.add(leg);
+            city = leg.stopId;
+        }
+        ComposedJourney compo = new ComposedJourney();
+        compo.addJourneys(legs);
+        return compo;
+    }
+
+    /**
+     * propagate the latest departure date of a city to the cities from which a bike journey arrives in it
+     *
+     * @param toRelax stack of the cities to relax, null if the weather does not allow the bikes
+     * @param waiting cities in the stack
+     */
+    private void relaxBikesBackwards(int city, int[] departure, Journey[] outLeg, int[] bikeDeparture,
+                                     int[] toRelax, BitSet waiting) {
+        if (toRelax == null || transfers.firstInto(city) == transfers.endInto(city)) return;
+        int size = 0;
+        toRelax[size++] = city;
+        waiting.set(city);
+        while (size > 0) {
+            int d = toRelax[--size];
+            waiting.clear(d);
+            for (int k = transfers.firstInto(d); k < transfers.endInto(d); k++) {
+                int e = transfers.intoEdge(k);
+                int o = transfers.edge(e).startId;
+                int t = Journey.subtractTime(departure[d], transfers.duration(e));
+                if (t <= departure[o]) continue;
+                if (!transfers.hasAvailablePlaces(e, t)) continue;
+                departure[o] = t;
+                outLeg[o] = transfers.edge(e);
+                bikeDeparture[o] = t;
+                if (!waiting.get(o)) {
+                    toRelax[size++] = o;
+                    waiting.set(o);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return index in byArrival of the last connection that arrives at or before date, -1 if there is none
+     */
+    private int lastArrivalBefore(int date) {
+        int low = 0;
+        int high = byArrival.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (connections[byArrival[mid]].arrivalDate <= date) low = mid + 1;
+            else high = mid;
+        }
+        return low - 1;
+    }
+
+    /**
+     * @return index of the first connection that leaves at or after date
+     */
+    private int firstConnectionAfter(int date) {
+        int low = 0;
+        int high = connections.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (connections[mid].departureDate < date) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * earliest arrival dates from a departure, with the leg used to reach each city
+     */
+    static final class Arrivals {
+        private final int from;
+        private final int[] arrival;
+        private final Journey[] inLeg;
+        private final int[] bikeDeparture;
+
+        private Arrivals(int from, int[] arrival, Journey[] inLeg, int[] bikeDeparture) {
+            this.from = from;
+            this.arrival = arrival;
+            this.inLeg = inLeg;
+            this.bikeDeparture = bikeDeparture;
+        }
+
+        /**
+         * forget the cities reached after a date (by a bike journey relaxed from a city reached before)
+         */
+        private void forgetAfter(int limit) {
+            for (int c = 0; c < arrival.length; c++)
+                if (arrival[c] != Integer.MAX_VALUE && arrival[c] > limit) {
+                    arrival[c] = Integer.MAX_VALUE;
+                    inLeg[c] = null;
+                }
+        }
+
+        /**
+         * @param to id of a city
+         * @return earliest arrival date at the city, Integer.MAX_VALUE if it is not reached
+         */
+        int arrival(int to) {
+            return (to < 0 || to >= arrival.length) ? Integer.MAX_VALUE : arrival[to];
+        }
+
+        /**
+         * rebuild the composed journey by following the legs back from the arrival
+         *
+         * @param to id of the arrival
+         * @return the earliest arrival journey, null if the city is not reached
+         */
+        ComposedJourney journeyTo(int to) {
+            if (to < 0 || to >= inLeg.length || to == from || inLeg[to] == null) return null;
+            var legs = new ArrayList<Journey>();
+            int city = to;
+            while (city != from) {
+                Journey leg = inLeg[city];
+                if (leg.meansType.isBike()) leg = TransferLayer.takenAt(leg, bikeDeparture[city]); // bike can be taken anytime
+                legs.add(leg);
+                city = leg.startId;
+            }
+            Collections.reverse(legs);
+            ComposedJourney compo = new ComposedJourney();
+            compo.addJourneys(legs);
+            return compo;
+        }
+    }
+}
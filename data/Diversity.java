@@ -0,0 +1,48 @@
+package data;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * constraint on the alternative journeys proposed to a traveller (see JourneysList.findAlternativeJourneys)<br>
+ * an alternative is kept only if it differs from each journey already kept: by the means it uses, or by the
+ * cities it goes through
+ *
+ * @author emmanueladam
+ */
+public enum Diversity {
+    /**
+     * the k best journeys, even if they only differ by a departure date
+     */
+    NONE,
+    /**
+     * journeys that do not use the same set of means
+     */
+    MEANS,
+    /**
+     * journeys that do not go through the same intermediate cities
+     */
+    CITIES;
+
+    /**
+     * @param journey a composed journey
+     * @param kept    the journeys already kept
+     * @return true if the journey differs from each of the kept journeys
+     */
+    boolean accepts(ComposedJourney journey, List<ComposedJourney> kept) {
+        if (this == NONE) return true;
+        var signature = signature(journey);
+        for (var other : kept)
+            if (signature.equals(signature(other))) return false;
+        return true;
+    }
+
+    /**
+     * @return what two journeys have to differ by: the set of means, or the list of the intermediate cities
+     */
+    private Object signature(ComposedJourney journey) {
+        var legs = journey.getJourneys();
+        if (this == MEANS) return legs.stream().map(j -> j.getMeans().toLowerCase()).collect(Collectors.toSet());
+        return legs.subList(0, legs.size() - 1).stream().map(j -> j.stopId).toList();
+    }
+}
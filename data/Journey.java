@@ -1,5 +1,7 @@
 package data;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
 import java.io.Serializable;
 import java.util.Objects;
 
@@ -31,10 +33,19 @@ public class Journey implements Cloneable, Serializable, Comparable<Journey> {
      * destination
      */
     String stop;
+    /**
+     * ids of the origin and of the destination in the city dictionary
+     */
+    transient int startId;
+    transient int stopId;
     /**
      * transport means
      */
     String means;
+    /**
+     * transport means resolved from its name (capacity, bike, weather rules)
+     */
+    transient Means meansType;
     /**
      * duration of the journey, in minutes (base duration, before weather adjustments)
      */
@@ -72,23 +83,21 @@ public class Journey implements Cloneable, Serializable, Comparable<Journey> {
      */
     String proposedBy;
     /**
-     * nb of remaining places
+     * key of the trip in its catalog (see JourneysList.insertTrip), null if the journey has no key
      */
-    private int places = 1;
-    
+    String tripKey;
     /**
-     * initial capacity for this type of journey
+     * nb of remaining places
      */
-    private static final int CAR_CAPACITY = 3;
-    private static final int BIKE_CAPACITY = 20;
-    private static final int BUS_CAPACITY = 50;
-    private static final int TRAM_CAPACITY = 200;
+    private int places = 1;
 
     public Journey(final String _start, final String _stop, final String _means, final int _departureDate,
                    final int _duration) {
         start = _start;
         stop = _stop;
         means = _means;
+        meansType = Means.of(_means);
+        resolveCities();
         departureDate = _departureDate;
         baseDuration = _duration;
         duration = _duration;
@@ -139,6 +148,42 @@ public class Journey implements Cloneable, Serializable, Comparable<Journey> {
         return (h + (mn + minutes) / 60) * 100 + (mn + minutes) % 60;
     }
 
+    /**
+     * @param time    a date in the format hhmm
+     * @param minutes nb of mn to subtract
+     * @return the result of the subtraction time - x in the format hhmm, Integer.MIN_VALUE before midnight
+     */
+    public static int subtractTime(final int time, final int minutes) {
+        final int m = toMinutes(time) - minutes;
+        return (m < 0) ? Integer.MIN_VALUE : (m / 60) * 100 + m % 60;
+    }
+
+    /**
+     * @param time a date in the format hhmm
+     * @return nb of minutes since midnight
+     */
+    public static int toMinutes(final int time) {
+        return (time / 100) * 60 + time % 100;
+    }
+
+    /**
+     * get the ids of the origin and of the destination from the city dictionary
+     */
+    private void resolveCities() {
+        var cities = CityDictionary.getInstance();
+        startId = (start == null) ? -1 : cities.idOf(start);
+        stopId = (stop == null) ? -1 : cities.idOf(stop);
+    }
+
+    /**
+     * the city ids and the means type are not serialized, they are asked again to the dictionary of this JVM
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        meansType = Means.of(means);
+        resolveCities();
+    }
+
     public static void main(final String... args) {
         final Journey test = new Journey("Val", "Lille", "car", 1440, 90);
         System.out.println(test);
@@ -160,6 +205,7 @@ public class Journey implements Cloneable, Serializable, Comparable<Journey> {
 
     public void setStart(final String start) {
         this.start = start;
+        resolveCities();
     }
 
     public String getStop() {
@@ -168,6 +214,7 @@ public class Journey implements Cloneable, Serializable, Comparable<Journey> {
 
     public void setStop(final String stop) {
         this.stop = stop;
+        resolveCities();
     }
 
     public String getMeans() {
@@ -176,6 +223,11 @@ public class Journey implements Cloneable, Serializable, Comparable<Journey> {
 
     public void setMeans(final String means) {
         this.means = means;
+        this.meansType = Means.of(means);
+    }
+
+    public Means getMeansType() {
+        return meansType;
     }
 
     public int getTime() {
@@ -250,6 +302,10 @@ public class Journey implements Cloneable, Serializable, Comparable<Journey> {
         this.proposedBy = proposedBy;
     }
 
+    public String getTripKey() {
+        return tripKey;
+    }
+
 
     public int getPlaces() {
         return places;
@@ -262,7 +318,7 @@ public class Journey implements Cloneable, Serializable, Comparable<Journey> {
      */
     public int getAvailablePlaces(int currentTime) {
         // Special handling for bikes
-        if (means != null && (means.equalsIgnoreCase("BIKE") || means.equalsIgnoreCase("VELO") || means.equalsIgnoreCase("VÉLO"))) {
+        if (meansType.isBike()) {
             BikeZoneManager bikeManager = BikeZoneManager.getInstance();
             return bikeManager.getAvailableBikes(start, currentTime);
         }
@@ -279,31 +335,7 @@ public class Journey implements Cloneable, Serializable, Comparable<Journey> {
      * Initialize places based on means of transport
      */
     private void initializePlacesBasedOnMeans() {
-        if (means == null) {
-            places = 1;
-            return;
-        }
-        
-        switch (means.toUpperCase()) {
-            case "CAR":
-            case "VOITURE":
-                places = CAR_CAPACITY;
-                break;
-            case "BIKE":
-            case "VELO":
-            case "VÉLO":
-                places = BIKE_CAPACITY;
-                break;
-            case "BUS":
-                places = BUS_CAPACITY;
-                break;
-            case "TRAM":
-            case "TRAMWAY":
-                places = TRAM_CAPACITY;
-                break;
-            default:
-                places = 1;
-        }
+        places = meansType.getCapacity();
     }
     
     /**
@@ -313,7 +345,7 @@ public class Journey implements Cloneable, Serializable, Comparable<Journey> {
      */
     public boolean bookPlace(int currentTime) {
         // Special handling for bikes
-        if (means != null && (means.equalsIgnoreCase("BIKE") || means.equalsIgnoreCase("VELO") || means.equalsIgnoreCase("VÉLO"))) {
+        if (meansType.isBike()) {
             BikeZoneManager bikeManager = BikeZoneManager.getInstance();
             return bikeManager.bookBike(start, stop, arrivalDate, currentTime);
         }
@@ -341,7 +373,7 @@ public class Journey implements Cloneable, Serializable, Comparable<Journey> {
      */
     public boolean hasAvailablePlaces(int currentTime) {
         // Special handling for bikes
-        if (means != null && (means.equalsIgnoreCase("BIKE") || means.equalsIgnoreCase("VELO") || means.equalsIgnoreCase("VÉLO"))) {
+        if (meansType.isBike()) {
             BikeZoneManager bikeManager = BikeZoneManager.getInstance();
             return bikeManager.getAvailableBikes(start, currentTime) > 0;
         }
@@ -363,24 +395,7 @@ public class Journey implements Cloneable, Serializable, Comparable<Journey> {
      * @return initial capacity
      */
     public int getInitialCapacity() {
-        if (means == null) return 1;
-        
-        switch (means.toUpperCase()) {
-            case "CAR":
-            case "VOITURE":
-                return CAR_CAPACITY;
-            case "BIKE":
-            case "VELO":
-            case "VÉLO":
-                return BIKE_CAPACITY;
-            case "BUS":
-                return BUS_CAPACITY;
-            case "TRAM":
-            case "TRAMWAY":
-                return TRAM_CAPACITY;
-            default:
-                return 1;
-        }
+        return meansType.getCapacity();
     }
     
     /**
@@ -390,12 +405,12 @@ public class Journey implements Cloneable, Serializable, Comparable<Journey> {
         WeatherManager weatherManager = WeatherManager.getInstance();
         
         // Apply duration adjustment
-        double durationFactor = weatherManager.getDurationAdjustmentFactor(means);
+        double durationFactor = weatherManager.getDurationAdjustmentFactor(meansType);
         duration = (int) Math.round(baseDuration * durationFactor);
         
         // Apply cost adjustment
         if (baseCost > 0) {
-            double costFactor = weatherManager.getCostAdjustmentFactor(means);
+            double costFactor = weatherManager.getCostAdjustmentFactor(meansType);
             cost = baseCost * costFactor;
         }
         
@@ -410,6 +425,18 @@ public class Journey implements Cloneable, Serializable, Comparable<Journey> {
         applyWeatherAdjustments();
     }
     
+    /**
+     * @param city1 a city
+     * @param city2 another city
+     * @return true if the journey goes from one of the cities to the other one
+     */
+    public boolean isBetween(String city1, String city2) {
+        var cities = CityDictionary.getInstance();
+        int a = cities.find(city1);
+        int b = cities.find(city2);
+        return (startId == a && stopId == b) || (startId == b && stopId == a);
+    }
+
     /**
      * Check if this journey is available according to weather conditions
      * @return true if journey is available despite weather
@@ -418,9 +445,7 @@ public class Journey implements Cloneable, Serializable, Comparable<Journey> {
         WeatherManager weatherManager = WeatherManager.getInstance();
         
         // Check if bike journeys are allowed
-        if (means != null && (means.equalsIgnoreCase("BIKE") || 
-                             means.equalsIgnoreCase("VELO") || 
-                             means.equalsIgnoreCase("VÉLO"))) {
+        if (meansType.isBike()) {
             return weatherManager.areBikeJourneysAllowed();
         }
         
@@ -447,8 +472,8 @@ public class Journey implements Cloneable, Serializable, Comparable<Journey> {
      */
     public String getWeatherImpactDescription() {
         WeatherManager weatherManager = WeatherManager.getInstance();
-        double durationFactor = weatherManager.getDurationAdjustmentFactor(means);
-        double costFactor = weatherManager.getCostAdjustmentFactor(means);
+        double durationFactor = weatherManager.getDurationAdjustmentFactor(meansType);
+        double costFactor = weatherManager.getCostAdjustmentFactor(meansType);
         
         StringBuilder impact = new StringBuilder();
         
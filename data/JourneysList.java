@@ -2,12 +2,18 @@ package data;
 
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 /**
  * class that represents a catalog of journeys<br>
  * contains function to search all the possible ways between two point start and
- * stop
+ * stop<br>
+ * a catalog published by a CatalogStore is a snapshot: it is never modified again, so it can be searched
+ * and serialized by several threads without lock (the indexes are built lazily and published once complete)
  *
  * @author emmanueladam
  * @version 1.1
@@ -15,12 +21,69 @@ import java.util.function.Predicate;
 @SuppressWarnings("serial")
 public class JourneysList implements Serializable {
     /**
-     * catalog of journeys from a departure (the key of the hashtable)
+     * catalog of journeys from a departure (the key of the hashtable, normalized name of the city)
      */
     private final Map<String, ArrayList<Journey>> catalog;
+    /**
+     * journeys repeated at a regular frequency, from a departure (normalized name of the city)<br>
+     * their occurrences are not stored, they are built by the searches when they need them
+     */
+    private final Map<String, ArrayList<PeriodicJourney>> periodic;
+    /**
+     * journeys of the catalog added with a key (see insertTrip), by key
+     */
+    private final Map<String, Journey> trips;
+    /**
+     * version of the catalog, incremented by each copy made to be modified
+     */
+    private long version;
+    /**
+     * identifier of the routes of the catalog, used as a key by the caches of the results of the searches<br>
+     * it changes when a journey is added or removed, when a journey has no more place, or when the weather
+     * changes a duration or a cost, but not when a place is booked on a journey that still has places.
+     * A catalog that merges catalogs has the sum of their stamps, so two merges of the same catalogs
+     * have the same stamp, whatever their order
+     */
+    private long stamp;
+    /**
+     * lists of the catalog indexed by the id of their departure city (null if no journey from the city)
+     */
+    private transient volatile ArrayList<ArrayList<Journey>> adjacency;
+    /**
+     * journeys and occurrences of the periodic journeys indexed by the id of their departure city,
+     * null until an engine needs all the journeys of the catalog (null if there is no periodic journey)
+     */
+    private transient volatile ArrayList<List<Journey>> expanded;
+    /**
+     * connection scan engine built from the catalog, null until the first earliest arrival query
+     */
+    private transient volatile ConnectionScan connectionScan;
+    /**
+     * numbering of the journeys for the enumeration of the paths, null until the first enumeration
+     */
+    private transient volatile PathEnumerator pathEnumerator;
+    /**
+     * journeys that can be taken anytime (bikes), null until the first search
+     */
+    private transient volatile TransferLayer transfers;
+    /**
+     * cities that can reach each arrival, null until the first search
+     */
+    private transient volatile Reachability reachability;
+    /**
+     * lower bounds of the travel times between the cities, null until the first goal-directed search
+     */
+    private transient volatile Landmarks landmarks;
+    /**
+     * journeys grouped by (departure id, arrival id), each list being sorted by departure date<br>
+     * built at the first direct search, then kept up to date by the add and remove methods
+     */
+    private transient volatile Map<Long, ArrayList<Journey>> directIndex;
 
     public JourneysList() {
         catalog = new HashMap<>();
+        periodic = new HashMap<>();
+        trips = new HashMap<>();
     }
 
 
@@ -34,13 +97,8 @@ public class JourneysList implements Serializable {
      * @param _duration      duration of the journey
      */
     public void addJourney(String _start, String _stop, String _means, int _departureDate, int _duration) {
-        var j = new Journey(_start.toUpperCase(), _stop.toUpperCase(), _means.toUpperCase(), _departureDate,
-                _duration);
-        catalog.compute(j.start, (s, l) -> {
-            if (l == null) l = new ArrayList<>();
-            l.add(j);
-            return l;
-        });
+        addJourney(new Journey(_start.toUpperCase(), _stop.toUpperCase(), _means.toUpperCase(), _departureDate,
+                _duration));
     }
 
     /**
@@ -49,11 +107,140 @@ public class JourneysList implements Serializable {
      * @param j the journey to add
      */
     public void addJourney(Journey j) {
-        catalog.compute(j.start, (s, l) -> {
+        routesChanged();
+        insertIndexed(j);
+    }
+
+    /**
+     * add a trip identified by a key into the catalog, for example a trip announced by a live feed<br>
+     * the indexes already built are updated, without scanning the catalog (the path enumerator is
+     * built again at its next use)
+     *
+     * @param key stable key of the trip
+     * @param j   the journey of the trip
+     * @return false if the key is already used by a trip of the catalog (nothing is changed)
+     */
+    public boolean insertTrip(String key, Journey j) {
+        if (key == null || trips.containsKey(key)) return false;
+        j.tripKey = key;
+        trips.put(key, j);
+        routesChanged();
+        insertIndexed(j);
+        return true;
+    }
+
+    /**
+     * replace the journey of a trip (other date, duration, means...)<br>
+     * the indexes already built are updated, as by deleteTrip then insertTrip
+     *
+     * @param key key of the trip
+     * @param j   the new journey of the trip
+     * @return the previous journey of the trip, null if the key is unknown (nothing is changed)
+     */
+    public Journey updateTrip(String key, Journey j) {
+        var old = trips.get(key);
+        if (old == null) return null;
+        deleteIndexed(old);
+        j.tripKey = key;
+        trips.put(key, j);
+        routesChanged();
+        insertIndexed(j);
+        return old;
+    }
+
+    /**
+     * remove a trip from the catalog<br>
+     * the indexes already built are updated; the reachability between the cities is kept as it is,
+     * it can then give a route that no more exists, which only makes the searches explore more
+     *
+     * @param key key of the trip
+     * @return the journey of the trip, null if the key is unknown
+     */
+    public Journey deleteTrip(String key) {
+        var j = trips.remove(key);
+        if (j == null) return null;
+        routesChanged();
+        deleteIndexed(j);
+        return j;
+    }
+
+    /**
+     * @param key key of a trip
+     * @return the journey of the trip, null if the key is unknown
+     */
+    public Journey getTrip(String key) {
+        return trips.get(key);
+    }
+
+    /**
+     * add a journey into the lists of the catalog and into the indexes already built
+     */
+    private void insertIndexed(Journey j) {
+        var list = catalog.compute(CityDictionary.getInstance().nameOf(j.startId), (s, l) -> {
             if (l == null) l = new ArrayList<>();
             l.add(j);
             return l;
         });
+        if (adjacency != null) setAdjacency(adjacency, j.startId, list);
+        if (directIndex != null) index(directIndex, j);
+        var lists = expanded;
+        if (lists != null) {
+            if (j.startId >= lists.size()) expanded = null;
+            else if (lists.get(j.startId) == null) lists.set(j.startId, list);
+            else if (lists.get(j.startId) != list) lists.get(j.startId).add(j); // list with the periodic journeys
+        }
+        if (j.meansType.isBike()) {
+            transfers = null;
+            connectionScan = null;
+        } else if (connectionScan != null) connectionScan = connectionScan.withConnection(j);
+        if (reachability != null) reachability = reachability.withEdge(j.startId, j.stopId);
+        landmarks = null; // a new journey can make a travel time shorter than its bound
+        pathEnumerator = null;
+    }
+
+    /**
+     * remove a journey from the lists of the catalog and from the indexes already built
+     */
+    private void deleteIndexed(Journey j) {
+        var list = journeysFrom(j.startId);
+        if (list != null) removeSame(list, j);
+        if (directIndex != null) unindex(j);
+        var lists = expanded;
+        if (lists != null && j.startId < lists.size() && lists.get(j.startId) != null && lists.get(j.startId) != list)
+            removeSame(lists.get(j.startId), j);
+        if (j.meansType.isBike()) {
+            transfers = null;
+            connectionScan = null;
+        } else if (connectionScan != null) connectionScan = connectionScan.withoutConnection(j);
+        pathEnumerator = null;
+    }
+
+    /**
+     * remove a journey from a list, compared by reference
+     */
+    private static void removeSame(List<Journey> list, Journey j) {
+        for (int i = 0; i < list.size(); i++)
+            if (list.get(i) == j) {
+                list.remove(i);
+                return;
+            }
+    }
+
+    /**
+     * add a journey repeated at a regular frequency into the catalog; its occurrences are not created
+     *
+     * @param p the periodic journey to add
+     */
+    public void addPeriodicJourney(PeriodicJourney p) {
+        routesChanged();
+        periodic.computeIfAbsent(CityDictionary.getInstance().nameOf(p.getFirst().startId), s -> new ArrayList<>())
+                .add(p);
+        expanded = null;
+        connectionScan = null;
+        pathEnumerator = null;
+        transfers = null;
+        reachability = null;
+        landmarks = null;
     }
 
     /**
@@ -62,11 +249,24 @@ public class JourneysList implements Serializable {
      * @param _list catalog of journeys to add
      */
     public void addJourneys(JourneysList _list) {
+        stamp += _list.stamp;
+        if (directIndex != null) _list.catalog.values().forEach(l -> l.forEach(j -> index(directIndex, j)));
         _list.catalog.forEach(
-                (s, l) -> catalog.merge(s, l, (l1, l2) -> {
-                    l1.addAll(l2);
-                    return l1;
-                }));
+                (s, l) -> {
+                    var list = catalog.merge(s, l, (l1, l2) -> {
+                        l1.addAll(l2);
+                        return l1;
+                    });
+                    if (adjacency != null) setAdjacency(adjacency, CityDictionary.getInstance().idOf(s), list);
+                });
+        _list.periodic.forEach((s, l) -> periodic.computeIfAbsent(s, k -> new ArrayList<>()).addAll(l));
+        trips.putAll(_list.trips);
+        expanded = null;
+        connectionScan = null;
+        pathEnumerator = null;
+        transfers = null;
+        reachability = null;
+        landmarks = null;
     }
 
     /**
@@ -89,19 +289,157 @@ public class JourneysList implements Serializable {
      * @return list of all the direct journeys between start and stop
      */
     ArrayList<Journey> findDirectJourneys(String start, String stop, int date) {
+        var cities = CityDictionary.getInstance();
+        int startId = cities.find(start);
+        int stopId = cities.find(stop);
+        if (startId < 0 || stopId < 0) return null;
+        var list = directIndex().get(pair(startId, stopId));
+        var periodicList = periodicFrom(startId);
+        if (list == null && periodicList == null) return null;
+        var candidates = (list == null) ? List.<Journey>of() : list.subList(firstDepartureAfter(list, date), list.size());
+        if (periodicList != null) {
+            var all = new ArrayList<>(candidates);
+            for (var p : periodicList)
+                if (p.getFirst().stopId == stopId) p.addOccurrences(date, Integer.MAX_VALUE, all);
+            if (all.size() > candidates.size()) all.sort(Comparator.comparingInt(j -> j.departureDate));
+            candidates = all;
+        }
         ArrayList<Journey> result = null;
-        var list = catalog.get(start.toUpperCase());
-        if (list != null) {
-            result = new ArrayList<>(List.copyOf(list));
-            result.removeIf(v -> !v.stop.equalsIgnoreCase(stop) || 
-                                v.departureDate < date || 
-                                !v.hasAvailablePlaces(Math.max(date, v.departureDate)) ||
-                                !v.isAvailableWithWeather()); // Filter based on weather
-            if (result.isEmpty()) result = null;
+        for (var v : candidates) {
+            if (!v.hasAvailablePlaces(Math.max(date, v.departureDate)) ||
+                    !v.isAvailableWithWeather()) continue; // Filter based on weather
+            if (result == null) result = new ArrayList<>();
+            result.add(v);
         }
         return result;
     }
 
+    /**
+     * @return the index of the direct journeys, built from the catalog if needed
+     */
+    private Map<Long, ArrayList<Journey>> directIndex() {
+        var index = directIndex;
+        if (index == null) {
+            var built = new HashMap<Long, ArrayList<Journey>>();
+            catalog.values().forEach(l -> l.forEach(j -> index(built, j)));
+            directIndex = index = built;
+        }
+        return index;
+    }
+
+    /**
+     * insert a journey in a direct index, after the journeys that leave at the same date
+     */
+    private static void index(Map<Long, ArrayList<Journey>> directIndex, Journey j) {
+        var list = directIndex.computeIfAbsent(pair(j.startId, j.stopId), k -> new ArrayList<>());
+        list.add(firstDepartureAfter(list, j.departureDate + 1), j);
+    }
+
+    /**
+     * remove a journey from the direct index
+     */
+    private void unindex(Journey j) {
+        var list = directIndex.get(pair(j.startId, j.stopId));
+        if (list == null) return;
+        for (int i = firstDepartureAfter(list, j.departureDate); i < list.size(); i++)
+            if (list.get(i) == j) {
+                list.remove(i);
+                return;
+            }
+    }
+
+    /**
+     * @return key of the direct index for the cities of id start and stop
+     */
+    private static long pair(int start, int stop) {
+        return ((long) start << 32) | stop;
+    }
+
+    /**
+     * @return the journeys from the city of id 'city', null if there is none
+     */
+    ArrayList<Journey> journeysFrom(int city) {
+        var lists = adjacency;
+        if (lists == null) {
+            var built = new ArrayList<ArrayList<Journey>>();
+            var cities = CityDictionary.getInstance();
+            catalog.forEach((s, l) -> setAdjacency(built, cities.idOf(s), l));
+            adjacency = lists = built;
+        }
+        return (city < 0 || city >= lists.size()) ? null : lists.get(city);
+    }
+
+    private static void setAdjacency(ArrayList<ArrayList<Journey>> adjacency, int city, ArrayList<Journey> list) {
+        while (adjacency.size() <= city) adjacency.add(null);
+        adjacency.set(city, list);
+    }
+
+    /**
+     * @return the periodic journeys from the city of id 'city', null if there is none
+     */
+    ArrayList<PeriodicJourney> periodicFrom(int city) {
+        if (periodic.isEmpty() || city < 0 || city >= CityDictionary.getInstance().size()) return null;
+        return periodic.get(CityDictionary.getInstance().nameOf(city));
+    }
+
+    /**
+     * @param city id of a city
+     * @param date minimum departure date
+     * @param late additional allowed time added to date (in mn.)
+     * @return the journeys from the city, with the occurrences of the periodic journeys that leave between
+     * date and date + late, null if there is none
+     */
+    private List<Journey> journeysFrom(int city, int date, int late) {
+        var list = journeysFrom(city);
+        var periodicList = periodicFrom(city);
+        if (periodicList == null) return list;
+        var all = (list == null) ? new ArrayList<Journey>() : new ArrayList<>(list);
+        int latest = Journey.addTime(date, late);
+        for (var p : periodicList) p.addOccurrences(date, latest, all);
+        return all;
+    }
+
+    /**
+     * @return the journeys from the city of id 'city' with all the occurrences of the periodic journeys,
+     * for the engines that are built once from the whole catalog; null if there is none
+     */
+    List<Journey> allJourneysFrom(int city) {
+        if (periodic.isEmpty()) return journeysFrom(city);
+        var lists = expanded;
+        if (lists == null) {
+            var built = new ArrayList<List<Journey>>();
+            int nbCities = CityDictionary.getInstance().size();
+            for (int c = 0; c < nbCities; c++) {
+                List<Journey> list = journeysFrom(c);
+                var periodicList = periodicFrom(c);
+                if (periodicList != null) {
+                    var all = (list == null) ? new ArrayList<Journey>() : new ArrayList<>(list);
+                    for (var p : periodicList) p.addOccurrences(0, Integer.MAX_VALUE, all);
+                    list = all;
+                }
+                built.add(list);
+            }
+            expanded = lists = built;
+        }
+        return (city < 0 || city >= lists.size()) ? null : lists.get(city);
+    }
+
+    /**
+     * @param list journeys sorted by departure date
+     * @param date minimum departure date
+     * @return index of the first journey of the list that leaves at or after date
+     */
+    private static int firstDepartureAfter(List<Journey> list, int date) {
+        int low = 0;
+        int high = list.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (list.get(mid).departureDate < date) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
     /**
      * compute a direct or indirect journey from start to stop from a given date
      * to the given date + late (in mn.)<br>
@@ -123,53 +461,800 @@ public class JourneysList implements Serializable {
      * @param late           additional allowed time added to the departure date (in mn.)
      *                       or to wait between 2 journeys
      * @param currentJourney current journey being build
-     * @param via            list of cities include in the journey
+     * @param via            list of cities include in the journey (they are not visited)
      * @param results        list of all the possible journeys
      * @return true if at least one journey has been found
      */
     public boolean findIndirectJourney(String start, String stop, int date, int late, ArrayList<Journey> currentJourney, List<String> via, List<ComposedJourney> results) {
-        boolean result;
-        Journey copyJ;
-        via.add(start.toUpperCase());
-        var list = catalog.get(start.toUpperCase());
-        if (list == null) return false;
-        for (Journey j : list) {
-            if (!via.contains(j.stop.toUpperCase())) {
-            // Check if journey has available places and is available with weather
-            boolean hasPlaces = j.hasAvailablePlaces(Math.max(date, j.departureDate));
-            boolean availableWithWeather = j.isAvailableWithWeather();
-            if (!hasPlaces || !availableWithWeather) continue; // Skip if no places available or weather forbids
-            
-            if ((j.departureDate >= date && j.departureDate <= Journey.addTime(date, late))
-                    || j.means.equalsIgnoreCase("bike")) // bike can be taken anytime
-                if (j.stop.equalsIgnoreCase(stop)) {//end of the journey
-                    if (j.means.equalsIgnoreCase("bike")) {
-                        copyJ = new Journey(j);
-                        copyJ.departureDate = date; // bike can be taken anytime
-                    }
-                    else copyJ = j;
-                    copyJ.arrivalDate = Journey.addTime(copyJ.departureDate, j.duration);
-                    currentJourney.add(copyJ);
-                    ComposedJourney compo = new ComposedJourney();
-                    compo.addJourneys((ArrayList<Journey>) currentJourney.clone());
-                    results.add(compo);
-                    currentJourney.removeLast();
-                } else {//juste an intermediate stop
-                        if (j.means.equalsIgnoreCase("bike")) {
-                            copyJ = new Journey(j);
-                            copyJ.departureDate = date; // bike can be taken anytime
-                            copyJ.arrivalDate = Journey.addTime(copyJ.departureDate, j.duration);
-                        }
-                        else copyJ = j;
-                        currentJourney.add(copyJ);
-                        findIndirectJourney(copyJ.stop.toUpperCase(), stop.toUpperCase(), copyJ.arrivalDate, late, currentJourney, via, results);
-                        via.remove(copyJ.stop.toUpperCase());
-                        currentJourney.remove(copyJ);
-                }
+        return findIndirectJourney(start, stop, date, late, currentJourney, via, new SearchOptions(), results);
+    }
+
+    /**
+     * compute the direct or indirect journeys from start to stop from a given date
+     * to the given date + late (in mn.), within the limits of the options<br>
+     * if the search is stopped by the options, results contains the journeys found so far
+     * and options.isTruncated() is true
+     *
+     * @param start          departure
+     * @param stop           arrival
+     * @param date           ideal departure date
+     * @param late           additional allowed time added to the departure date (in mn.)
+     *                       or to wait between 2 journeys
+     * @param currentJourney current journey being build
+     * @param via            list of cities include in the journey (they are not visited)
+     * @param options        limits of the search (nb of journeys, nb of expansions, time)
+     * @param results        list of all the possible journeys
+     * @return true if at least one journey has been found
+     */
+    public boolean findIndirectJourney(String start, String stop, int date, int late, ArrayList<Journey> currentJourney,
+                                       List<String> via, SearchOptions options, List<ComposedJourney> results) {
+        options.start();
+        var cities = CityDictionary.getInstance();
+        int startId = cities.find(start);
+        int stopId = cities.find(stop);
+        if (startId < 0 || stopId < 0) return false;
+        var reach = reachability();
+        if (!reach.canReach(startId, stopId)) return !results.isEmpty(); // no route, nothing to explore
+        var visited = new BitSet(cities.size());
+        for (String city : via) {
+            int id = cities.find(city);
+            if (id >= 0) visited.set(id);
+        }
+        reach.excludeDeadEnds(visited, stopId);
+        findIndirectJourney(startId, stopId, date, date, late, currentJourney, visited, TransferLayer.isAllowed(),
+                options, results);
+        return !results.isEmpty();
+    }
+
+    /**
+     * recursive search of the journeys from start to stop, on the ids of the cities<br>
+     * the timed journeys are read from the catalog, the bikes from the transfer layer
+     *
+     * @param departure ideal departure date of the search (departure of a first bike journey)
+     * @param date      arrival date of the current journey (or ideal departure date if it is empty)
+     * @param via       set of the ids of the cities include in the journey
+     * @param bikes     true if the weather allows the bikes
+     */
+    private void findIndirectJourney(int start, int stop, int departure, int date, int late, ArrayList<Journey> currentJourney, BitSet via, boolean bikes, SearchOptions options, List<ComposedJourney> results) {
+        via.set(start);
+        if (!options.expand()) return;
+        var list = journeysFrom(start, date, late);
+        if (list != null) {
+            int latest = Journey.addTime(date, late);
+            for (Journey j : list) {
+                if (options.isTruncated()) return;
+                if (j.meansType.isBike() || j.departureDate < date || j.departureDate > latest) continue;
+                extendJourney(j, j.departureDate, j.arrivalDate, stop, departure, late, currentJourney, via, bikes, options, results);
             }
         }
-        result = !results.isEmpty();
-        return result;
+        if (!bikes) return;
+        var layer = transfers();
+        for (int e = layer.first(start); e < layer.end(start); e++) {
+            if (options.isTruncated()) return;
+            if (via.get(layer.stop(e))) continue; // bike can be taken anytime
+            extendJourney(layer.edge(e), date, Journey.addTime(date, layer.duration(e)), stop, departure, late, currentJourney, via, bikes, options, results);
+        }
+    }
+
+    /**
+     * add the journey j at the end of the current journey if it is possible, and continue the search
+     * from its arrival; a bike journey is added as it is in the catalog, it is copied with its dates
+     * only if the journey reaches the arrival (see compose)
+     *
+     * @param legDeparture departure date of j in the current journey
+     * @param arrival      arrival date of j in the current journey
+     * @param departure    ideal departure date of the search
+     */
+    private void extendJourney(Journey j, int legDeparture, int arrival, int stop, int departure, int late, ArrayList<Journey> currentJourney, BitSet via, boolean bikes, SearchOptions options, List<ComposedJourney> results) {
+        if (via.get(j.stopId)) return;
+        // only the bikes depend on the weather, that is read once by search
+        if (!j.hasAvailablePlaces(Math.max(legDeparture, j.departureDate))) return;
+        currentJourney.add(j);
+        if (j.stopId == stop) //end of the journey
+            results.add(compose(currentJourney, departure));
+        else if (options.canExtend(currentJourney.size())) {//juste an intermediate stop
+            findIndirectJourney(j.stopId, stop, departure, arrival, late, currentJourney, via, bikes, options, results);
+            via.clear(j.stopId);
+        }
+        currentJourney.removeLast();
+    }
+
+    /**
+     * build the composed journey of a sequence of journeys found by a search, the bike journeys being
+     * copied with their dates
+     *
+     * @param legs      journeys of the catalog
+     * @param departure ideal departure date of the search (departure of a first bike journey)
+     */
+    private static ComposedJourney compose(List<Journey> legs, int departure) {
+        var journeys = new ArrayList<Journey>(legs.size());
+        int t = departure;
+        for (Journey j : legs) {
+            if (j.meansType.isBike()) j = TransferLayer.takenAt(j, t); // bike can be taken anytime
+            journeys.add(j);
+            t = j.arrivalDate;
+        }
+        var compo = new ComposedJourney();
+        compo.addJourneys(journeys);
+        return compo;
+    }
+
+    /**
+     * compute all the direct or indirect journeys from start to stop, as findIndirectJourney, but in parallel:
+     * the journeys that leave the departure are shared between the threads of the pool, each task searches
+     * the journeys that begin with its first journeys with its own current journey and visited cities.
+     * The results are merged in the order of the first journeys, so they are the same as in a sequential search
+     *
+     * @param start   departure
+     * @param stop    arrival
+     * @param date    ideal departure date
+     * @param late    additional allowed time added to the departure date (in mn.)
+     *                or to wait between 2 journeys
+     * @param pool    threads used by the search (ForkJoinPool.commonPool() for example)
+     * @param results list of all the possible journeys
+     * @return true if at least one journey has been found
+     */
+    public boolean findIndirectJourney(String start, String stop, int date, int late, ForkJoinPool pool,
+                                       List<ComposedJourney> results) {
+        return findIndirectJourney(start, stop, date, late, pool, new SearchOptions(), results);
+    }
+
+    /**
+     * compute the direct or indirect journeys from start to stop in parallel, within the limits of the options<br>
+     * the tasks share the budget and the deadline of the options: when one of them is over, all the tasks stop,
+     * results contains the journeys found so far and options.isTruncated() is true. The journeys found before
+     * the stop are not always the first ones of a sequential search
+     *
+     * @param start   departure
+     * @param stop    arrival
+     * @param date    ideal departure date
+     * @param late    additional allowed time added to the departure date (in mn.)
+     *                or to wait between 2 journeys
+     * @param pool    threads used by the search (ForkJoinPool.commonPool() for example)
+     * @param options limits of the search (nb of journeys, nb of expansions, time)
+     * @param results list of all the possible journeys
+     * @return true if at least one journey has been found
+     */
+    public boolean findIndirectJourney(String start, String stop, int date, int late, ForkJoinPool pool,
+                                       SearchOptions options, List<ComposedJourney> results) {
+        options.start();
+        var cities = CityDictionary.getInstance();
+        int startId = cities.find(start);
+        int stopId = cities.find(stop);
+        if (startId < 0 || stopId < 0) return false;
+        if (!reachability().canReach(startId, stopId)) return false;
+        // the weather is read once here, the tasks share its answer
+        boolean bikes = TransferLayer.isAllowed();
+        var list = new ArrayList<Journey>();
+        var timed = journeysFrom(startId, date, late);
+        if (timed != null)
+            for (Journey j : timed)
+                if (!j.meansType.isBike() && j.departureDate >= date && j.departureDate <= Journey.addTime(date, late))
+                    list.add(j);
+        if (bikes) {
+            var layer = transfers();
+            for (int e = layer.first(startId); e < layer.end(startId); e++) list.add(layer.edge(e));
+        }
+        // the departure is expanded once, as in a sequential search
+        if (list.isEmpty() || !options.expand()) return false;
+        var found = pool.invoke(new FirstJourneysSearch(list, 0, list.size(), startId, stopId, date, late, bikes,
+                options));
+        results.addAll(found);
+        return !found.isEmpty();
+    }
+
+    /**
+     * search of the journeys that begin with the journeys of index from to to - 1 of a list,
+     * split in two tasks until there is one first journey by task
+     */
+    private final class FirstJourneysSearch extends RecursiveTask<List<ComposedJourney>> {
+        private final List<Journey> firstJourneys;
+        private final int from, to, start, stop, date, late;
+        private final boolean bikes;
+        private final SearchOptions options;
+
+        FirstJourneysSearch(List<Journey> firstJourneys, int from, int to, int start, int stop, int date, int late,
+                            boolean bikes, SearchOptions options) {
+            this.firstJourneys = firstJourneys;
+            this.bikes = bikes;
+            this.options = options;
+            this.from = from;
+            this.to = to;
+            this.start = start;
+            this.stop = stop;
+            this.date = date;
+            this.late = late;
+        }
+
+        @Override
+        protected List<ComposedJourney> compute() {
+            if (to - from == 1) {
+                var results = new ArrayList<ComposedJourney>();
+                if (options.isTruncated()) return results;
+                var via = new BitSet();
+                reachability().excludeDeadEnds(via, stop);
+                via.set(start);
+                var j = firstJourneys.get(from);
+                boolean bike = j.meansType.isBike(); // bike can be taken anytime
+                extendJourney(j, bike ? date : j.departureDate, bike ? Journey.addTime(date, j.duration) : j.arrivalDate,
+                        stop, date, late, new ArrayList<>(), via, bikes, options, results);
+                return results;
+            }
+            int middle = (from + to) >>> 1;
+            var first = new FirstJourneysSearch(firstJourneys, from, middle, start, stop, date, late, bikes, options);
+            first.fork();
+            var second = new FirstJourneysSearch(firstJourneys, middle, to, start, stop, date, late, bikes, options)
+                    .compute();
+            var results = first.join();
+            results.addAll(second);
+            return results;
+        }
+    }
+
+    /**
+     * give the direct or indirect journeys from start to stop as they are found, in the order of
+     * findIndirectJourney; the search stops when the stream is no more read, for example:
+     * <pre>
+     *  <code>
+     * var firstCheap = catalogs.streamIndirectJourneys(from, to, departure, 60)
+     *                          .filter(j -> j.getCost() < 10).findFirst();
+     * </code>
+     * </pre>
+     *
+     * @param start departure
+     * @param stop  arrival
+     * @param date  ideal departure date
+     * @param late  additional allowed time added to the departure date (in mn.)
+     *              or to wait between 2 journeys
+     * @return the lazy stream of the journeys
+     */
+    public Stream<ComposedJourney> streamIndirectJourneys(String start, String stop, int date, int late) {
+        return paths().stream(start, stop, date, late);
+    }
+
+    /**
+     * @return the reachability between the cities of this catalog, built at the first call after a change
+     */
+    Reachability reachability() {
+        var reach = reachability;
+        if (reach == null) reachability = reach = new Reachability(this);
+        return reach;
+    }
+
+    /**
+     * @return the lower bounds of the travel times of this catalog, built at the first call after a change
+     */
+    Landmarks landmarks() {
+        var bounds = landmarks;
+        if (bounds == null) landmarks = bounds = new Landmarks(this);
+        return bounds;
+    }
+
+    /**
+     * @return the journeys of this catalog that can be taken anytime, numbered at the first call after a change
+     */
+    TransferLayer transfers() {
+        var layer = transfers;
+        if (layer == null) transfers = layer = new TransferLayer(this);
+        return layer;
+    }
+
+    /**
+     * @return the enumerator of the paths of this catalog, without recursion nor allocation during the search
+     */
+    public PathEnumerator paths() {
+        var enumerator = pathEnumerator;
+        if (enumerator == null) pathEnumerator = enumerator = new PathEnumerator(this, reachability());
+        return enumerator;
+    }
+
+    /**
+     * compute the k best direct or indirect journeys from start to stop for a preference<br>
+     * the journeys are searched as in findIndirectJourney (first departure between date and date + late,
+     * wait less than late between 2 journeys), but a partial journey is abandoned as soon as its cost,
+     * or its arrival date, makes it worse than the k best journeys already found (branch and bound)
+     *
+     * @param start      departure
+     * @param stop       arrival
+     * @param date       ideal departure date
+     * @param late       additional allowed time added to the departure date (in mn.)
+     *                   or to wait between 2 journeys
+     * @param preference criterion used to compare the journeys
+     * @param k          nb of journeys wanted
+     * @param results    list in which the k best journeys are added, the best first
+     * @return true if at least one journey has been found
+     */
+    public boolean findBestJourneys(String start, String stop, int date, int late, Preference preference, int k,
+                                    List<ComposedJourney> results) {
+        return findBestJourneys(start, stop, date, late, preference, k, new SearchOptions(), results);
+    }
+
+    /**
+     * compute the k best direct or indirect journeys from start to stop for a preference, within the limits
+     * of the options<br>
+     * if the search is stopped by the options, results contains the best journeys found so far
+     * and options.isTruncated() is true
+     * if the options are goal-directed, the journeys that can arrive the soonest are explored first, and the
+     * partial journeys whose duration plus the lower bound of the remaining time (see Landmarks) is worse
+     * than the k best journeys are abandoned
+     *
+     * @param start      departure
+     * @param stop       arrival
+     * @param date       ideal departure date
+     * @param late       additional allowed time added to the departure date (in mn.)
+     *                   or to wait between 2 journeys
+     * @param preference criterion used to compare the journeys
+     * @param k          nb of journeys wanted
+     * @param options    limits of the search (nb of journeys, nb of expansions, time)
+     * @param results    list in which the k best journeys are added, the best first
+     * @return true if at least one journey has been found
+     */
+    public boolean findBestJourneys(String start, String stop, int date, int late, Preference preference, int k,
+                                    SearchOptions options, List<ComposedJourney> results) {
+        options.start();
+        var cities = CityDictionary.getInstance();
+        int startId = cities.find(start);
+        int stopId = cities.find(stop);
+        if (startId < 0 || stopId < 0 || k <= 0) return false;
+        var reach = reachability();
+        if (!reach.canReach(startId, stopId)) return false; // no route, nothing to explore
+        var visited = new BitSet(cities.size());
+        reach.excludeDeadEnds(visited, stopId);
+        // the worst of the k best journeys is at the head of the queue
+        var best = new PriorityQueue<>(preference.comparator().reversed());
+        findBestJourneys(startId, stopId, date, late, -1, 0, new ArrayList<>(), visited,
+                TransferLayer.isAllowed(), options.isGoalDirected() ? landmarks().lowerBounds(stopId) : null, null,
+                preference, k, options, best);
+        var found = new ArrayList<>(best);
+        found.sort(preference.comparator());
+        results.addAll(found);
+        return !found.isEmpty();
+    }
+
+    /**
+     * compute k alternative journeys from start to stop, the best first for a preference (Yen's algorithm)<br>
+     * the best journey is searched first; then, for each journey found and each of its cities, a journey
+     * that begins as it until this city (the root) and then leaves it by another journey than the journeys
+     * found with the same root, is searched (a spur journey). The best spur journey not yet found is the next
+     * alternative. The nb of searches grows with k, and not with the nb of possible journeys. A journey that
+     * does not respect the diversity is not given but its spur journeys are searched.
+     * The first timed journey has to leave between date and date + late, and the waiting time between two
+     * journeys is at most late; if the search is stopped by the options, results contains the alternatives
+     * found so far and options.isTruncated() is true
+     *
+     * @param start      departure
+     * @param stop       arrival
+     * @param date       ideal departure date
+     * @param late       additional allowed time added to the departure date (in mn.)
+     *                   or to wait between 2 journeys
+     * @param preference criterion used to compare the journeys
+     * @param k          nb of journeys wanted
+     * @param diversity  how the alternatives have to differ from each other
+     * @param options    limits of each search, and goal-directed search if asked
+     * @param results    list in which the alternatives are added, the best first
+     * @return true if at least one journey has been found
+     */
+    public boolean findAlternativeJourneys(String start, String stop, int date, int late, Preference preference,
+                                           int k, Diversity diversity, SearchOptions options,
+                                           List<ComposedJourney> results) {
+        return findAlternativeJourneys(start, stop, date, late, preference, k, diversity, j -> true, options, results);
+    }
+
+    /**
+     * compute k alternative journeys from start to stop that are accepted by a traveller
+     * (see findAlternativeJourneys)<br>
+     * a journey that is not accepted is not given and does not count in the k journeys, but its spur
+     * journeys are searched: the k journeys are the k best accepted ones
+     *
+     * @param start      departure
+     * @param stop       arrival
+     * @param date       ideal departure date
+     * @param late       additional allowed time added to the departure date (in mn.)
+     *                   or to wait between 2 journeys
+     * @param preference criterion used to compare the journeys
+     * @param k          nb of journeys wanted
+     * @param diversity  how the alternatives have to differ from each other
+     * @param accepted   test of a traveller on a journey found (a latest departure for example)
+     * @param options    limits of each search, and goal-directed search if asked
+     * @param results    list in which the alternatives are added, the best first
+     * @return true if at least one journey has been found
+     */
+    public boolean findAlternativeJourneys(String start, String stop, int date, int late, Preference preference,
+                                           int k, Diversity diversity, Predicate<ComposedJourney> accepted,
+                                           SearchOptions options, List<ComposedJourney> results) {
+        options.start();
+        var cities = CityDictionary.getInstance();
+        int startId = cities.find(start);
+        int stopId = cities.find(stop);
+        if (startId < 0 || stopId < 0 || k <= 0) return false;
+        var reach = reachability();
+        if (!reach.canReach(startId, stopId)) return false; // no route, nothing to explore
+        var deadEnds = new BitSet(cities.size());
+        reach.excludeDeadEnds(deadEnds, stopId);
+        boolean bikes = TransferLayer.isAllowed();
+        int[] bounds = options.isGoalDirected() ? landmarks().lowerBounds(stopId) : null;
+        // journeys found (given or not), and spur journeys waiting to be found, the best at the head
+        var found = new ArrayList<List<Journey>>();
+        var candidates = new PriorityQueue<>(preference.comparator());
+        var alternatives = new ArrayList<ComposedJourney>();
+        var best = spurJourney(List.of(), startId, stopId, date, late, deadEnds, bikes, bounds, List.of(),
+                preference, options);
+        if (best != null) candidates.add(best);
+        while (!candidates.isEmpty() && alternatives.size() < k && !options.isTruncated()) {
+            var next = candidates.poll();
+            var legs = next.getJourneys();
+            found.add(legs);
+            if (accepted.test(next) && diversity.accepts(next, alternatives)) alternatives.add(next);
+            if (alternatives.size() == k) break;
+            for (int s = 0; s < legs.size() && !options.isTruncated(); s++) {
+                var root = legs.subList(0, s);
+                // the journeys that leave the end of the root in the journeys found with the same root
+                var excluded = new ArrayList<Journey>();
+                for (var path : found)
+                    if (path.size() > s && sameLegs(path.subList(0, s), root)) excluded.add(path.get(s));
+                var spur = spurJourney(root, startId, stopId, date, late, deadEnds, bikes, bounds, excluded,
+                        preference, options);
+                if (spur != null && candidates.stream().noneMatch(c -> sameLegs(c.getJourneys(), spur.getJourneys())))
+                    candidates.add(spur);
+            }
+        }
+        results.addAll(alternatives);
+        return !alternatives.isEmpty();
+    }
+
+    /**
+     * best journey that begins by the journeys of root and then does not take an excluded journey
+     *
+     * @param root     first journeys of the journey (empty to search from start)
+     * @param deadEnds cities that cannot reach stop
+     * @param excluded journeys that cannot leave the last city of root
+     * @return the best journey, null if none
+     */
+    private ComposedJourney spurJourney(List<Journey> root, int start, int stop, int date, int late, BitSet deadEnds,
+                                        boolean bikes, int[] bounds, List<Journey> excluded, Preference preference,
+                                        SearchOptions options) {
+        var via = (BitSet) deadEnds.clone();
+        double cost = 0;
+        for (Journey j : root) {
+            via.set(j.startId);
+            cost += j.getCost();
+        }
+        int spur = root.isEmpty() ? start : root.getLast().stopId;
+        int spurDate = root.isEmpty() ? date : root.getLast().arrivalDate;
+        int firstDeparture = root.isEmpty() ? -1 : root.getFirst().departureDate;
+        var best = new PriorityQueue<>(preference.comparator().reversed());
+        findBestJourneys(spur, stop, spurDate, late, firstDeparture, cost, new ArrayList<>(root), via, bikes, bounds,
+                excluded.isEmpty() ? null : excluded, preference, 1, options, best);
+        return best.peek();
+    }
+
+    /**
+     * @return true if j is one of the excluded journeys
+     */
+    private static boolean isExcluded(List<Journey> excluded, Journey j) {
+        for (Journey e : excluded) if (sameLeg(e, j)) return true;
+        return false;
+    }
+
+    /**
+     * @return true if two lists have the same journeys (see sameLeg)
+     */
+    private static boolean sameLegs(List<Journey> a, List<Journey> b) {
+        if (a.size() != b.size()) return false;
+        for (int i = 0; i < a.size(); i++) if (!sameLeg(a.get(i), b.get(i))) return false;
+        return true;
+    }
+
+    /**
+     * @return true if a and b are the same journey of the catalog; a bike journey of a found journey is a
+     * copy with its dates, and an occurrence of a periodic journey is created by each search, so they are
+     * compared by their route, means and proposer (and departure date if it is not a bike)
+     */
+    private static boolean sameLeg(Journey a, Journey b) {
+        if (a == b) return true;
+        return a.startId == b.startId && a.stopId == b.stopId && a.duration == b.duration
+                && a.meansType == b.meansType && Objects.equals(a.means, b.means)
+                && Objects.equals(a.proposedBy, b.proposedBy)
+                && (a.meansType.isBike() || a.departureDate == b.departureDate);
+    }
+
+    /**
+     * recursive branch and bound search of the k best journeys, on the ids of the cities<br>
+     * the timed journeys are read from the catalog, then the bikes from the transfer layer
+     *
+     * @param firstDeparture departure date of the first journey of currentJourney, -1 if it is empty
+     * @param cost           cost of the journeys of currentJourney
+     * @param bikes          true if the weather allows the bikes
+     * @param bounds         lower bounds of the travel times to stop for a goal-directed search, null otherwise
+     * @param excluded       journeys that cannot be taken (see sameLeg), null if none
+     * @param best           k best journeys found, the worst at the head
+     */
+    private void findBestJourneys(int start, int stop, int date, int late, int firstDeparture, double cost,
+                                  ArrayList<Journey> currentJourney, BitSet via, boolean bikes, int[] bounds,
+                                  List<Journey> excluded, Preference preference, int k, SearchOptions options,
+                                  PriorityQueue<ComposedJourney> best) {
+        via.set(start);
+        if (!options.expand()) return;
+        var list = journeysFrom(start, date, late);
+        int nbTimed = (list == null) ? 0 : list.size();
+        var layer = bikes ? transfers() : null;
+        int firstBike = bikes ? layer.first(start) : 0;
+        int nbBikes = bikes ? layer.end(start) - firstBike : 0;
+        int[] order = (bounds == null) ? null
+                : goalOrder(list, nbTimed, layer, firstBike, nbBikes, date, late, via, bounds);
+        int size = (order == null) ? nbTimed + nbBikes : order.length;
+        for (int n = 0; n < size; n++) {
+            if (options.isTruncated()) return;
+            int i = (order == null) ? n : order[n];
+            Journey j;
+            int departure;
+            int arrival;
+            if (i < nbTimed) {
+                j = list.get(i);
+                if (j.meansType.isBike() || via.get(j.stopId)) continue;
+                if (j.departureDate < date || j.departureDate > Journey.addTime(date, late)) continue;
+                departure = j.departureDate;
+                arrival = j.arrivalDate;
+            } else {
+                int e = firstBike + i - nbTimed;
+                if (via.get(layer.stop(e))) continue;
+                j = layer.edge(e);
+                departure = date; // bike can be taken anytime
+                arrival = Journey.addTime(date, layer.duration(e));
+            }
+            if (excluded != null && isExcluded(excluded, j)) continue;
+            int first = (firstDeparture < 0) ? departure : firstDeparture;
+            double newCost = cost + j.getCost();
+            int remaining = (bounds == null || j.stopId >= bounds.length) ? 0 : bounds[j.stopId];
+            int duration = Journey.toMinutes(arrival) - Journey.toMinutes(first) + remaining;
+            if (best.size() == k && preference.bound(duration, newCost) >= preference.score(best.peek()))
+                continue; // cannot be better than the k best
+            if (!j.hasAvailablePlaces(Math.max(date, j.departureDate))) continue;
+            currentJourney.add(j);
+            if (j.stopId == stop) {
+                best.add(compose(currentJourney, first));
+                if (best.size() > k) best.poll();
+            } else if (options.canExtend(currentJourney.size())) {
+                findBestJourneys(j.stopId, stop, arrival, late, first, newCost, currentJourney, via, bikes, bounds,
+                        excluded, preference, k, options, best);
+                via.clear(j.stopId);
+            }
+            currentJourney.removeLast();
+        }
+    }
+
+    /**
+     * order of the journeys from a city in a goal-directed search: by arrival date plus lower bound of the
+     * travel time to the arrival; the journeys that cannot be taken (departure out of [date, date + late],
+     * arrival already visited) or that cannot reach the arrival are left out
+     *
+     * @return the indexes of the journeys, the timed journeys of list first then the bikes of the layer
+     */
+    private static int[] goalOrder(List<Journey> list, int nbTimed, TransferLayer layer, int firstBike, int nbBikes,
+                                   int date, int late, BitSet via, int[] bounds) {
+        var keys = new long[nbTimed + nbBikes];
+        int size = 0;
+        for (int i = 0; i < nbTimed + nbBikes; i++) {
+            int city;
+            int arrival;
+            if (i < nbTimed) {
+                var j = list.get(i);
+                if (j.meansType.isBike() || j.departureDate < date || j.departureDate > Journey.addTime(date, late))
+                    continue;
+                city = j.stopId;
+                arrival = j.arrivalDate;
+            } else {
+                int e = firstBike + i - nbTimed;
+                city = layer.stop(e);
+                arrival = Journey.addTime(date, layer.duration(e));
+            }
+            int remaining = (city < bounds.length) ? bounds[city] : 0;
+            if (!via.get(city) && remaining != Landmarks.UNREACHABLE)
+                keys[size++] = ((long) (Journey.toMinutes(arrival) + remaining) << 32) | i;
+        }
+        Arrays.sort(keys, 0, size);
+        var order = new int[size];
+        for (int n = 0; n < size; n++) order[n] = (int) keys[n];
+        return order;
+    }
+
+    /**
+     * compute the journey from start to stop that arrives as soon as possible<br>
+     * unlike findIndirectJourney, the catalog is scanned once (Connection Scan Algorithm), so the time
+     * of a query is linear in the number of journeys and not in the number of possible paths.
+     * The first timed journey has to leave between date and date + late; the waiting time between two
+     * journeys is not bounded
+     *
+     * @param start   departure
+     * @param stop    arrival
+     * @param date    ideal departure date
+     * @param late    additional allowed time added to the departure date (in mn.)
+     * @param results list in which the earliest arrival journey is added
+     * @return true if a journey has been found
+     */
+    public boolean findEarliestJourney(String start, String stop, int date, int late, List<ComposedJourney> results) {
+        var cities = CityDictionary.getInstance();
+        int startId = cities.find(start);
+        int stopId = cities.find(stop);
+        if (!reachability().canReach(startId, stopId)) return false; // no route, nothing to scan
+        var compo = connectionScan().earliestArrival(startId, stopId, date, late);
+        if (compo != null) results.add(compo);
+        return compo != null;
+    }
+
+    /**
+     * compute all the cities that can be reached from start within a nb of minutes (isochrone), with the
+     * journey that reaches each of them as soon as possible<br>
+     * the catalog is scanned once, from the departure date until date + minutes, instead of one search
+     * by arrival. The first timed journey has to leave between date and date + late; the waiting time
+     * between two journeys is not bounded
+     *
+     * @param start   departure
+     * @param date    departure date
+     * @param late    additional allowed time added to the departure date (in mn.)
+     * @param minutes max travel time from the departure date (in mn.)
+     * @param results map in which each reached city is added with its earliest arrival journey, by arrival date
+     * @return true if at least one city can be reached
+     */
+    public boolean findIsochrone(String start, int date, int late, int minutes, Map<String, ComposedJourney> results) {
+        var cities = CityDictionary.getInstance();
+        int startId = cities.find(start);
+        if (startId < 0 || minutes < 0) return false;
+        var arrivals = connectionScan().arrivalsBefore(startId, date, late, Journey.addTime(date, minutes));
+        var reached = new ArrayList<Integer>();
+        for (int c = 0; c < cities.size(); c++)
+            if (c != startId && arrivals.arrival(c) != Integer.MAX_VALUE) reached.add(c);
+        reached.sort(Comparator.comparingInt(arrivals::arrival));
+        for (int c : reached) results.put(cities.nameOf(c), arrivals.journeyTo(c));
+        return !reached.isEmpty();
+    }
+
+    /**
+     * compute the fastest journey from start to stop made only of bike journeys (that can be taken anytime)<br>
+     * the bike journeys do not depend on the time, they are searched in a contraction hierarchy built once
+     * after each change of the catalog (see prepareTransferHierarchy): a long chain of bikes is found by
+     * visiting a few cities. A bike journey without bike at the date it is taken is left out
+     *
+     * @param start   departure
+     * @param stop    arrival
+     * @param date    departure date
+     * @param results list in which the fastest journey is added
+     * @return true if a journey has been found
+     */
+    public boolean findTransferJourney(String start, String stop, int date, List<ComposedJourney> results) {
+        if (!TransferLayer.isAllowed()) return false;
+        var cities = CityDictionary.getInstance();
+        int startId = cities.find(start);
+        int stopId = cities.find(stop);
+        if (startId < 0 || stopId < 0 || startId == stopId) return false;
+        var layer = transfers();
+        var chain = layer.hierarchy().route(startId, stopId, date);
+        if (chain == null) return false;
+        var legs = new ArrayList<Journey>(chain.length);
+        for (int e : chain) legs.add(layer.edge(e));
+        results.add(compose(legs, date));
+        return true;
+    }
+
+    /**
+     * build now the contraction hierarchy of the bike journeys, instead of at the first search that needs it
+     * (a server can call it after the catalog is read); it is built again after a change of the catalog
+     */
+    public void prepareTransferHierarchy() {
+        transfers().hierarchy();
+    }
+
+    /**
+     * compute the journey from start to stop that arrives before a date and leaves as late as possible
+     * (arrive-by search)<br>
+     * the catalog is scanned once backwards, by decreasing arrival date, from the arrival. The last timed
+     * journey has to arrive between date - late and date; the waiting time between two journeys is not bounded
+     *
+     * @param start   departure
+     * @param stop    arrival
+     * @param date    latest arrival date
+     * @param late    additional allowed time before the arrival date (in mn.)
+     * @param results list in which the latest departure journey is added
+     * @return true if a journey has been found
+     */
+    public boolean findLatestJourney(String start, String stop, int date, int late, List<ComposedJourney> results) {
+        var cities = CityDictionary.getInstance();
+        int startId = cities.find(start);
+        int stopId = cities.find(stop);
+        if (!reachability().canReach(startId, stopId)) return false; // no route, nothing to scan
+        var compo = connectionScan().latestDeparture(startId, stopId, date, late);
+        if (compo != null) results.add(compo);
+        return compo != null;
+    }
+
+    /**
+     * compute the profile of the journeys from start to stop over a range of departure dates: for each
+     * departure date of the range, the journey that arrives as soon as possible, in one sweep of the catalog<br>
+     * a journey is kept only if no journey that leaves later arrives as soon as it (the traveller would wait);
+     * the departure dates are those of the timed journeys that leave start, the waiting time between two
+     * journeys is not bounded
+     *
+     * @param start    departure
+     * @param stop     arrival
+     * @param earliest first departure date of the range
+     * @param latest   last departure date of the range
+     * @param results  list in which the journeys of the profile are added, by departure date
+     * @return true if at least one journey has been found
+     */
+    public boolean findProfileJourneys(String start, String stop, int earliest, int latest,
+                                       List<ComposedJourney> results) {
+        var cities = CityDictionary.getInstance();
+        int startId = cities.find(start);
+        int stopId = cities.find(stop);
+        if (!reachability().canReach(startId, stopId)) return false; // no route, nothing to scan
+        var profile = connectionScan().profile(startId, stopId, earliest, latest);
+        results.addAll(profile);
+        return !profile.isEmpty();
+    }
+
+    /**
+     * answer a batch of earliest arrival queries (see findEarliestJourney) in one pass<br>
+     * the queries that leave the same city share one sweep of the catalog: their dates are scanned from the
+     * latest to the earliest, each scan reusing the arrival dates of the later ones and stopping when the
+     * arrival dates of its arrivals are known; so many travellers that leave the same city cost about one query
+     *
+     * @param queries the queries
+     * @param late    additional allowed time added to the departure dates (in mn.)
+     * @return the earliest arrival journey of each query, in the order of the queries (null if there is none)
+     */
+    public List<ComposedJourney> findEarliestJourneys(List<RouteQuery> queries, int late) {
+        var cities = CityDictionary.getInstance();
+        var reach = reachability();
+        var results = new ArrayList<ComposedJourney>(Collections.nCopies(queries.size(), null));
+        // the indexes of the queries that can be answered, grouped by departure
+        var groups = new LinkedHashMap<Integer, List<Integer>>();
+        for (int i = 0; i < queries.size(); i++) {
+            var q = queries.get(i);
+            int from = cities.find(q.from());
+            if (!reach.canReach(from, cities.find(q.to()))) continue; // no route, nothing to scan
+            groups.computeIfAbsent(from, k -> new ArrayList<>()).add(i);
+        }
+        var engine = connectionScan();
+        groups.forEach((from, indexes) -> {
+            int[] to = indexes.stream().mapToInt(i -> cities.find(queries.get(i).to())).toArray();
+            int[] dates = indexes.stream().mapToInt(i -> queries.get(i).departure()).toArray();
+            var journeys = engine.earliestArrivals(from, to, dates, late);
+            for (int k = 0; k < journeys.length; k++) results.set(indexes.get(k), journeys[k]);
+        });
+        return results;
+    }
+
+    /**
+     * @return the connection scan engine of this catalog, built at the first call after a change
+     */
+    private ConnectionScan connectionScan() {
+        var engine = connectionScan;
+        if (engine == null) connectionScan = engine = new ConnectionScan(this);
+        return engine;
+    }
+
+    /**
+     * compute the Pareto optimal journeys from start to stop: a journey is kept only if no other journey
+     * is at least as good on duration, cost, co2 and confort.<br>
+     * the dominated partial journeys are dropped city by city during the search (McRAPTOR like rounds),
+     * so they are never extended. The first journey has to leave between date and date + late;
+     * the waiting time between two journeys is not bounded
+     *
+     * @param start   departure
+     * @param stop    arrival
+     * @param date    ideal departure date
+     * @param late    additional allowed time added to the departure date (in mn.)
+     * @param results list in which the journeys of the Pareto front are added
+     * @return true if at least one journey has been found
+     */
+    public boolean findParetoJourneys(String start, String stop, int date, int late, List<ComposedJourney> results) {
+        var cities = CityDictionary.getInstance();
+        int startId = cities.find(start);
+        int stopId = cities.find(stop);
+        if (!reachability().canReach(startId, stopId)) return false; // no route, nothing to explore
+        var front = new ParetoRouter(this).paretoFront(startId, stopId, date, late, ParetoRouter.MAX_ROUNDS);
+        results.addAll(front);
+        return !front.isEmpty();
     }
 
     /**
@@ -177,7 +1262,7 @@ public class JourneysList implements Serializable {
      */
     public boolean isEmpty() {
         var empty = (this.catalog == null);
-        empty = empty || catalog.keySet().isEmpty();
+        empty = empty || (catalog.keySet().isEmpty() && periodic.isEmpty());
         return empty;
     }
 
@@ -185,7 +1270,7 @@ public class JourneysList implements Serializable {
      * @return the journeys from a city
      */
     public ArrayList<Journey> getJourneysFrom(String from) {
-        return catalog.get(from);
+        return catalog.get(CityDictionary.normalize(from));
     }
     
     /**
@@ -193,9 +1278,28 @@ public class JourneysList implements Serializable {
      */
     public void refreshWeatherAdjustments() {
         if (catalog != null) {
-            catalog.values().forEach(journeyList -> 
-                journeyList.forEach(Journey::refreshWeatherAdjustments)
-            );
+            boolean changed = false;
+            for (var journeyList : catalog.values())
+                for (Journey j : journeyList) {
+                    int duration = j.duration;
+                    double cost = j.cost;
+                    j.refreshWeatherAdjustments();
+                    changed = changed || duration != j.duration || cost != j.cost;
+                }
+            for (var periodicList : periodic.values())
+                for (var p : periodicList) {
+                    int duration = p.getFirst().duration;
+                    double cost = p.getFirst().cost;
+                    p.refreshWeatherAdjustments();
+                    changed = changed || duration != p.getFirst().duration || cost != p.getFirst().cost;
+                }
+            if (changed) {
+                routesChanged();
+                expanded = null;
+                connectionScan = null;
+                transfers = null;
+                landmarks = null;
+            }
         }
     }
 
@@ -205,7 +1309,151 @@ public class JourneysList implements Serializable {
      * @param p predicate used to filter the journey
      */
     public void removeIf(Predicate<Journey> p) {
-        catalog.values().forEach(l -> l.removeIf(p));
+        boolean removed = false;
+        for (var l : catalog.values())
+            removed |= l.removeIf(j -> {
+                if (!p.test(j)) return false;
+                if (directIndex != null) unindex(j);
+                if (j.tripKey != null) trips.remove(j.tripKey, j);
+                return true;
+            });
+        // the occurrences of a periodic journey have the same route as its first journey
+        for (var l : periodic.values()) removed |= l.removeIf(pj -> p.test(pj.getFirst()));
+        if (removed) routesChanged();
+        expanded = null;
+        connectionScan = null;
+        pathEnumerator = null;
+        transfers = null;
+        reachability = null;
+        landmarks = null;
+    }
+
+    /**
+     * @return version of the catalog
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return identifier of the routes of the catalog (see the field stamp)
+     */
+    public long getStamp() {
+        return stamp;
+    }
+
+    /**
+     * give a new stamp to the catalog, the results of the searches cached for the previous stamp are no more used
+     */
+    void routesChanged() {
+        stamp = ThreadLocalRandom.current().nextLong();
+    }
+
+    /**
+     * copy the catalog to modify it without changing this one<br>
+     * the lists are copied but the journeys are shared: a journey of the copy has to be replaced
+     * by ownCopy before being modified. The engines, that are never modified, are shared too: the
+     * trips inserted or deleted in the copy update them without rebuilding them
+     *
+     * @return a catalog with the same journeys and the next version number
+     */
+    JourneysList copy() {
+        var copy = new JourneysList();
+        catalog.forEach((s, l) -> copy.catalog.put(s, new ArrayList<>(l)));
+        periodic.forEach((s, l) -> copy.periodic.put(s, new ArrayList<>(l)));
+        copy.trips.putAll(trips);
+        copy.version = version + 1;
+        copy.stamp = stamp;
+        copy.connectionScan = connectionScan;
+        copy.reachability = reachability;
+        copy.landmarks = landmarks;
+        copy.transfers = transfers;
+        copy.pathEnumerator = pathEnumerator;
+        return copy;
+    }
+
+    /**
+     * replace a journey shared with other catalogs by a copy that belongs only to this catalog<br>
+     * the engines are kept: the copy takes the place of the journey in the connection scan, the reachability,
+     * the landmarks and the bike transfers do not depend on the places
+     *
+     * @param j a journey of the catalog
+     * @return the copy that replaces j in the catalog, null if j is not in the catalog
+     */
+    Journey ownCopy(Journey j) {
+        var list = journeysFrom(j.startId);
+        if (list == null) return null;
+        for (int i = 0; i < list.size(); i++)
+            if (list.get(i) == j) {
+                var copy = j.clone();
+                list.set(i, copy);
+                if (j.tripKey != null) trips.replace(j.tripKey, j, copy);
+                if (directIndex != null) {
+                    unindex(j);
+                    index(directIndex, copy);
+                }
+                var lists = expanded;
+                if (lists != null && j.startId < lists.size() && lists.get(j.startId) != list)
+                    lists.get(j.startId).replaceAll(e -> e == j ? copy : e); // list with the periodic journeys
+                ownedCopy(c -> c == j, copy);
+                return copy;
+            }
+        return null;
+    }
+
+    /**
+     * replace a periodic journey shared with other catalogs by a copy that belongs only to this catalog,
+     * and get the occurrence of the copy on which places are booked (see ownCopy)
+     *
+     * @param p a periodic journey of the catalog
+     * @param k rank of an occurrence
+     * @return the occurrence of the copy that replaces p in the catalog, null if p is not in the catalog
+     */
+    Journey ownOccurrence(PeriodicJourney p, int k) {
+        var list = periodicFrom(p.getFirst().startId);
+        if (list == null) return null;
+        for (int i = 0; i < list.size(); i++)
+            if (list.get(i) == p) {
+                var copy = p.copy();
+                list.set(i, copy);
+                var occurrence = copy.bookedOccurrence(k);
+                expanded = null;
+                // the engines have their own occurrence, built before: it has the same route and date
+                ownedCopy(c -> sameLeg(c, occurrence), occurrence);
+                return occurrence;
+            }
+        return null;
+    }
+
+    /**
+     * update the engines after the replacement of a journey by a copy
+     *
+     * @param replaced test that recognizes the replaced journey
+     * @param copy     the copy
+     */
+    private void ownedCopy(Predicate<Journey> replaced, Journey copy) {
+        if (!copy.meansType.isBike() && connectionScan != null)
+            connectionScan = connectionScan.withCopy(replaced, copy);
+        pathEnumerator = null;
+    }
+
+    /**
+     * replace all the journeys by copies that belong only to this catalog
+     */
+    void ownAll() {
+        catalog.values().forEach(l -> l.replaceAll(Journey::clone));
+        periodic.values().forEach(l -> l.replaceAll(PeriodicJourney::copy));
+        trips.clear();
+        catalog.values().forEach(l -> l.forEach(j -> {
+            if (j.tripKey != null) trips.put(j.tripKey, j);
+        }));
+        directIndex = null;
+        expanded = null;
+        connectionScan = null;
+        pathEnumerator = null;
+        transfers = null;
+        reachability = null;
+        landmarks = null;
     }
 
     @Override
@@ -215,6 +1463,7 @@ public class JourneysList implements Serializable {
         ArrayList<Journey> list = new ArrayList<>();
         lists.forEach(list::addAll);
         list.forEach(j -> sb.append(j).append("\n"));
+        periodic.values().forEach(l -> l.forEach(p -> sb.append(p).append("\n")));
         sb.append("---end---");
         return "list of journeys:\n" + sb;
     }
@@ -229,6 +1478,8 @@ public class JourneysList implements Serializable {
         journeysList.addJourney(new Journey("LILLE", "DUNKERQUE", "car", 1500, 40, 10));
         journeysList.addJourney(new Journey("LILLE", "DUNKERQUE", "car", 1600, 40, 10));
         journeysList.addJourney(new Journey("LILLE", "DUNKERQUE", "car", 1630, 40, 10));
+        // a train every 30 mn from 1510 to 1640, the trains are not created in the catalog
+        journeysList.addPeriodicJourney(new PeriodicJourney(new Journey("LILLE", "DUNKERQUE", "train", 1510, 30, 5), 30, 4));
         journeysList.addJourney(new Journey("DUNKERQUE", "BRAY-DUNES", "car", 1700, 10, 10));
         journeysList.addJourney(new Journey("DUNKERQUE", "BRAY-DUNES", "bike", 0, 20, 1));
         ArrayList<Journey> search = journeysList.findDirectJourneys("val", "lille");
@@ -240,6 +1491,57 @@ public class JourneysList implements Serializable {
         journeysList.findIndirectJourney("val", "Bray-Dunes", 1400, 90, new ArrayList<>(),
                 new ArrayList<>(), journeys);
         System.out.println(journeys);
+        System.out.println("-".repeat(50));
+        journeys.clear();
+        journeysList.findEarliestJourney("val", "Bray-Dunes", 1400, 90, journeys);
+        System.out.println(journeys);
+        System.out.println("-".repeat(50));
+        journeysList.findLatestJourney("val", "Bray-Dunes", 1730, 90, journeys);
+        System.out.println(journeys);
+        System.out.println("-".repeat(50));
+        journeys.clear();
+        journeysList.findProfileJourneys("val", "Bray-Dunes", 1200, 1600, journeys);
+        System.out.println(journeys);
+        System.out.println("-".repeat(50));
+        journeys.clear();
+        System.out.println(journeysList.findEarliestJourneys(List.of(new RouteQuery("val", "Bray-Dunes", 1400),
+                new RouteQuery("val", "dunkerque", 1400), new RouteQuery("lille", "Bray-Dunes", 1400)), 90));
+        System.out.println("-".repeat(50));
+        journeys.clear();
+        var isochrone = new LinkedHashMap<String, ComposedJourney>();
+        journeysList.findIsochrone("val", 1400, 90, 120, isochrone);
+        isochrone.forEach((city, journey) -> System.out.println(city + " : " + journey));
+        System.out.println("-".repeat(50));
+        journeysList.findTransferJourney("val", "lille", 1400, journeys);
+        System.out.println(journeys);
+        System.out.println("-".repeat(50));
+        journeys.clear();
+        journeysList.findParetoJourneys("val", "Bray-Dunes", 1400, 90, journeys);
+        System.out.println(journeys);
+        System.out.println("-".repeat(50));
+        journeys.clear();
+        journeysList.findBestJourneys("val", "Bray-Dunes", 1400, 90, Preference.DURATION, 2, journeys);
+        System.out.println(journeys);
+        System.out.println("-".repeat(50));
+        journeys.clear();
+        journeysList.findBestJourneys("val", "Bray-Dunes", 1400, 90, Preference.DURATION, 2,
+                new SearchOptions().setGoalDirected(true), journeys);
+        System.out.println(journeys);
+        System.out.println("-".repeat(50));
+        journeys.clear();
+        journeysList.findAlternativeJourneys("val", "Bray-Dunes", 1400, 90, Preference.DURATION, 3,
+                Diversity.CITIES, new SearchOptions(), journeys);
+        System.out.println(journeys);
+        System.out.println("-".repeat(50));
+        var paths = journeysList.paths();
+        paths.enumerate("val", "Bray-Dunes", 1400, 90, (legs, length) ->
+                System.out.println(paths.toComposedJourney(legs, length, 1400)));
+        System.out.println("-".repeat(50));
+        System.out.println(journeysList.streamIndirectJourneys("val", "Bray-Dunes", 1400, 90)
+                .filter(j -> j.getCost() < 25).findFirst().orElse(null));
+        System.out.println("-".repeat(50));
+        var columns = new ColumnarCatalog(journeysList);
+        System.out.println(columns.findEarliestJourney("val", "Bray-Dunes", 1400, 90));
 
     }
 
@@ -0,0 +1,166 @@
+package data;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+/**
+ * lower bounds of the travel time between two cities, given by landmarks (ALT)<br>
+ * the catalog is seen as a static graph in which each link between two cities has the shortest duration
+ * of their journeys (waiting is not counted): the durations from and to a few landmarks, chosen far from
+ * each other, are computed once. By the triangle inequality, for a landmark L the time from a city c to
+ * the arrival t is at least d(c, L) - d(t, L) and d(L, t) - d(L, c): a goal-directed search uses the best
+ * of these bounds to explore first the journeys that can arrive the soonest, and to abandon the others
+ *
+ * @author emmanueladam
+ */
+final class Landmarks {
+    /**
+     * max nb of landmarks
+     */
+    static final int NB_LANDMARKS = 8;
+    /**
+     * value of a duration when a city cannot be reached
+     */
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    /**
+     * ids of the landmarks
+     */
+    private final int[] landmarks;
+    /**
+     * durations from each landmark to each city
+     */
+    private final int[][] fromLandmark;
+    /**
+     * durations from each city to each landmark
+     */
+    private final int[][] toLandmark;
+
+    /**
+     * choose the landmarks of a catalog and compute their durations
+     *
+     * @param catalog the journeys
+     */
+    Landmarks(JourneysList catalog) {
+        int nbCities = CityDictionary.getInstance().size();
+        // shortest duration between two cities
+        var shortest = new HashMap<Long, Integer>();
+        int[] degree = new int[nbCities];
+        for (int c = 0; c < nbCities; c++) {
+            var list = catalog.allJourneysFrom(c);
+            if (list == null) continue;
+            for (Journey j : list)
+                if (j.stopId != c && j.stopId < nbCities)
+                    shortest.merge(((long) c << 32) | j.stopId, j.duration, Math::min);
+        }
+        // links in both directions, grouped by city (compressed rows)
+        int[] firstOut = new int[nbCities + 1];
+        int[] firstIn = new int[nbCities + 1];
+        for (long key : shortest.keySet()) {
+            firstOut[(int) (key >>> 32) + 1]++;
+            firstIn[(int) key + 1]++;
+        }
+        for (int c = 0; c < nbCities; c++) {
+            firstOut[c + 1] += firstOut[c];
+            firstIn[c + 1] += firstIn[c];
+        }
+        int[] outCity = new int[shortest.size()];
+        int[] outDuration = new int[shortest.size()];
+        int[] inCity = new int[shortest.size()];
+        int[] inDuration = new int[shortest.size()];
+        int[] nextOut = Arrays.copyOf(firstOut, nbCities);
+        int[] nextIn = Arrays.copyOf(firstIn, nbCities);
+        shortest.forEach((key, duration) -> {
+            int from = (int) (key >>> 32);
+            int to = (int) (long) key;
+            outCity[nextOut[from]] = to;
+            outDuration[nextOut[from]++] = duration;
+            inCity[nextIn[to]] = from;
+            inDuration[nextIn[to]++] = duration;
+            degree[from]++;
+            degree[to]++;
+        });
+        // the first landmark is the most connected city, each next one the farthest from the chosen ones
+        int nb = Math.min(NB_LANDMARKS, nbCities);
+        landmarks = new int[nb];
+        fromLandmark = new int[nb][];
+        toLandmark = new int[nb][];
+        int count = 0;
+        int next = 0;
+        for (int c = 1; c < nbCities; c++) if (degree[c] > degree[next]) next = c;
+        long[] distance = new long[nbCities];
+        Arrays.fill(distance, Long.MAX_VALUE);
+        while (count < nb && next >= 0) {
+            landmarks[count] = next;
+            fromLandmark[count] = durations(next, firstOut, outCity, outDuration, nbCities);
+            toLandmark[count] = durations(next, firstIn, inCity, inDuration, nbCities);
+            for (int c = 0; c < nbCities; c++)
+                distance[c] = Math.min(distance[c], (long) fromLandmark[count][c] + toLandmark[count][c]);
+            count++;
+            next = -1;
+            for (int c = 0; c < nbCities; c++)
+                if (degree[c] > 0 && distance[c] > 0 && (next < 0 || distance[c] > distance[next])) next = c;
+        }
+    }
+
+    /**
+     * dijkstra from a city on the links of the static graph
+     *
+     * @return the durations from the city to each city, UNREACHABLE if it cannot be reached
+     */
+    private static int[] durations(int from, int[] first, int[] city, int[] duration, int nbCities) {
+        int[] dist = new int[nbCities];
+        Arrays.fill(dist, UNREACHABLE);
+        dist[from] = 0;
+        var queue = new PriorityQueue<long[]>((a, b) -> Long.compare(a[0], b[0]));
+        queue.add(new long[]{0, from});
+        while (!queue.isEmpty()) {
+            var head = queue.poll();
+            int c = (int) head[1];
+            if (head[0] > dist[c]) continue;
+            for (int e = first[c]; e < first[c + 1]; e++) {
+                int d = dist[c] + duration[e];
+                if (d < dist[city[e]]) {
+                    dist[city[e]] = d;
+                    queue.add(new long[]{d, city[e]});
+                }
+            }
+        }
+        return dist;
+    }
+
+    /**
+     * @param stop id of the arrival
+     * @return lower bound of the travel time from each city to stop (see lowerBound), computed once by search
+     */
+    int[] lowerBounds(int stop) {
+        int[] bounds = new int[toLandmark.length == 0 || toLandmark[0] == null ? 0 : toLandmark[0].length];
+        for (int c = 0; c < bounds.length; c++) bounds[c] = lowerBound(c, stop);
+        return bounds;
+    }
+
+    /**
+     * @param city id of a city
+     * @param stop id of the arrival
+     * @return lower bound of the travel time from city to stop (in mn.), UNREACHABLE if a landmark
+     * shows that stop cannot be reached from city
+     */
+    int lowerBound(int city, int stop) {
+        if (city == stop) return 0;
+        int bound = 0;
+        for (int l = 0; l < landmarks.length && fromLandmark[l] != null; l++) {
+            int cityTo = toLandmark[l][city];
+            int stopTo = toLandmark[l][stop];
+            // stop reaches the landmark but city does not: city does not reach stop
+            if (cityTo == UNREACHABLE && stopTo != UNREACHABLE) return UNREACHABLE;
+            if (cityTo != UNREACHABLE && stopTo != UNREACHABLE) bound = Math.max(bound, cityTo - stopTo);
+            int fromCity = fromLandmark[l][city];
+            int fromStop = fromLandmark[l][stop];
+            // the landmark reaches city but not stop: city does not reach stop
+            if (fromCity != UNREACHABLE && fromStop == UNREACHABLE) return UNREACHABLE;
+            if (fromCity != UNREACHABLE) bound = Math.max(bound, fromStop - fromCity);
+        }
+        return bound;
+    }
+}
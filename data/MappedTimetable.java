@@ -0,0 +1,190 @@
+package data;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * timetable read in place from a binary file mapped in memory (see TimetableFile for the format)<br>
+ * the columns stay off the heap: only the names of the cities, of the means and of the agencies are read
+ * when the file is opened. The file is never modified, the places booked since the opening are counted
+ * in the heap, for the booked journeys only
+ *
+ * @author emmanueladam
+ */
+public class MappedTimetable extends Timetable {
+    private final MappedByteBuffer buffer;
+    private final String[] cities;
+    private final Map<String, Integer> cityIndexes;
+    private final String[] names;
+    private final Means[] meansTypes;
+    private final int nbTrips;
+    private final int nbTimed;
+    /**
+     * position in the file of each column
+     */
+    private final int firstTripAt, startAt, stopAt, departureAt, durationAt, costAt, co2At, confortAt,
+            placesAt, meansAt, providerAt, timedAt;
+    /**
+     * nb of places booked on each journey since the opening of the file
+     */
+    private final Map<Integer, Integer> booked;
+
+    private MappedTimetable(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.getInt() != TimetableFile.MAGIC || buffer.getInt() != TimetableFile.VERSION)
+            throw new IOException("not a timetable file");
+        int nbCities = buffer.getInt();
+        nbTrips = buffer.getInt();
+        int nbNames = buffer.getInt();
+        nbTimed = buffer.getInt();
+        cities = new String[nbCities];
+        cityIndexes = new HashMap<>();
+        for (int c = 0; c < nbCities; c++) {
+            cities[c] = readString(buffer);
+            cityIndexes.put(cities[c], c);
+        }
+        names = new String[nbNames];
+        meansTypes = new Means[nbNames];
+        for (int k = 0; k < nbNames; k++) {
+            names[k] = readString(buffer);
+            meansTypes[k] = Means.of(names[k]);
+        }
+        firstTripAt = buffer.position();
+        startAt = firstTripAt + 4 * (nbCities + 1);
+        stopAt = startAt + 4 * nbTrips;
+        departureAt = stopAt + 4 * nbTrips;
+        durationAt = departureAt + 4 * nbTrips;
+        costAt = durationAt + 4 * nbTrips;
+        co2At = costAt + 8 * nbTrips;
+        confortAt = co2At + 4 * nbTrips;
+        placesAt = confortAt + 4 * nbTrips;
+        meansAt = placesAt + 4 * nbTrips;
+        providerAt = meansAt + 4 * nbTrips;
+        timedAt = providerAt + 4 * nbTrips;
+        if (timedAt + 4 * nbTimed > buffer.limit()) throw new IOException("truncated timetable file");
+        booked = new HashMap<>();
+    }
+
+    /**
+     * map a timetable file in memory
+     *
+     * @param file binary timetable, written by TimetableFile
+     * @return the timetable
+     * @throws IOException if the file cannot be read or is not a timetable
+     */
+    public static MappedTimetable open(Path file) throws IOException {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return new MappedTimetable(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        var bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    int nbCities() {
+        return cities.length;
+    }
+
+    @Override
+    int cityIndex(String city) {
+        var index = cityIndexes.get(CityDictionary.normalize(city));
+        return (index == null) ? -1 : index;
+    }
+
+    @Override
+    String cityName(int city) {
+        return cities[city];
+    }
+
+    @Override
+    int firstTrip(int c) {
+        return buffer.getInt(firstTripAt + 4 * c);
+    }
+
+    @Override
+    public int size() {
+        return nbTrips;
+    }
+
+    @Override
+    int start(int trip) {
+        return buffer.getInt(startAt + 4 * trip);
+    }
+
+    @Override
+    int stop(int trip) {
+        return buffer.getInt(stopAt + 4 * trip);
+    }
+
+    @Override
+    int departure(int trip) {
+        return buffer.getInt(departureAt + 4 * trip);
+    }
+
+    @Override
+    int baseDuration(int trip) {
+        return buffer.getInt(durationAt + 4 * trip);
+    }
+
+    @Override
+    double baseCost(int trip) {
+        return buffer.getDouble(costAt + 8 * trip);
+    }
+
+    @Override
+    int co2(int trip) {
+        return buffer.getInt(co2At + 4 * trip);
+    }
+
+    @Override
+    int confort(int trip) {
+        return buffer.getInt(confortAt + 4 * trip);
+    }
+
+    @Override
+    String meansName(int trip) {
+        return names[buffer.getInt(meansAt + 4 * trip)];
+    }
+
+    @Override
+    Means meansType(int trip) {
+        return meansTypes[buffer.getInt(meansAt + 4 * trip)];
+    }
+
+    @Override
+    String provider(int trip) {
+        int k = buffer.getInt(providerAt + 4 * trip);
+        return (k < 0) ? null : names[k];
+    }
+
+    @Override
+    int places(int trip) {
+        return buffer.getInt(placesAt + 4 * trip) - booked.getOrDefault(trip, 0);
+    }
+
+    @Override
+    void takePlace(int trip) {
+        booked.merge(trip, 1, Integer::sum);
+    }
+
+    @Override
+    int nbTimed() {
+        return nbTimed;
+    }
+
+    @Override
+    int timed(int k) {
+        return buffer.getInt(timedAt + 4 * k);
+    }
+}
@@ -0,0 +1,84 @@
+package data;
+
+/**
+ * transport means of a journey, resolved once from the name read in the csv files<br>
+ * a means gives the initial capacity of a journey, tells if it is a bike (taken anytime, places managed
+ * by the BikeZoneManager) and to which weather rules it is sensitive
+ *
+ * @author emmanueladam
+ */
+public enum Means {
+    CAR(3, Weather.CAR),
+    BIKE(20, Weather.BIKE),
+    BUS(50, Weather.NONE),
+    TRAM(200, Weather.NONE),
+    OTHER(1, Weather.NONE);
+
+    /**
+     * weather rules that apply to a means
+     */
+    public enum Weather {
+        /**
+         * not offered in rain or very strong wind, longer with strong wind
+         */
+        BIKE,
+        /**
+         * longer and more expensive with snow
+         */
+        CAR,
+        /**
+         * not affected by the weather
+         */
+        NONE
+    }
+
+    /**
+     * initial nb of places of a journey
+     */
+    private final int capacity;
+    /**
+     * weather rules of the means
+     */
+    private final Weather weather;
+
+    Means(int capacity, Weather weather) {
+        this.capacity = capacity;
+        this.weather = weather;
+    }
+
+    /**
+     * @param name name of a means, in english or in french, whatever the case
+     * @return the means corresponding to the name, OTHER if it is unknown or null
+     */
+    public static Means of(String name) {
+        if (name == null) return OTHER;
+        return switch (name.trim().toUpperCase()) {
+            case "CAR", "VOITURE" -> CAR;
+            case "BIKE", "VELO", "VÉLO" -> BIKE;
+            case "BUS" -> BUS;
+            case "TRAM", "TRAMWAY" -> TRAM;
+            default -> OTHER;
+        };
+    }
+
+    /**
+     * @return initial nb of places of a journey with this means
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return true for the bikes, that can be taken anytime and whose places are given by the BikeZoneManager
+     */
+    public boolean isBike() {
+        return this == BIKE;
+    }
+
+    /**
+     * @return the weather rules that apply to this means
+     */
+    public Weather getWeather() {
+        return weather;
+    }
+}
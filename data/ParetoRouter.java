@@ -0,0 +1,167 @@
+package data;
+
+import java.util.*;
+
+/**
+ * multi-criteria router inspired by McRAPTOR<br>
+ * the search is done by rounds, a round adds one journey to the labels built in the previous round.
+ * A label (arrival, departure, cost, co2, confort) is kept in the bag of a city only if no other label
+ * of this city and of the same round is at least as good on every criterion.
+ * As the confort of a composed journey is an average, two labels are only compared when they have the
+ * same number of journeys, that is inside a round: the sum of the conforts then orders the averages.
+ * The journeys built from the labels of the destination are filtered once more on duration, cost,
+ * co2 and confort, so that only the Pareto front is returned
+ *
+ * @author emmanueladam
+ */
+class ParetoRouter {
+    /**
+     * default maximal number of journeys in a composed journey
+     */
+    static final int MAX_ROUNDS = 8;
+
+    /**
+     * a partial journey ending in a city
+     */
+    private static final class Label {
+        final int city;
+        final int arrival;
+        final int departure;
+        final double cost;
+        final int co2;
+        final int confort;
+        final Label parent;
+        final Journey leg;
+
+        Label(int city, int arrival, int departure, double cost, int co2, int confort, Label parent, Journey leg) {
+            this.city = city;
+            this.arrival = arrival;
+            this.departure = departure;
+            this.cost = cost;
+            this.co2 = co2;
+            this.confort = confort;
+            this.parent = parent;
+            this.leg = leg;
+        }
+
+        /**
+         * @return true if this label is at least as good as o on every criterion
+         */
+        boolean dominates(Label o) {
+            return arrival <= o.arrival && departure >= o.departure && cost <= o.cost && co2 <= o.co2
+                    && confort >= o.confort;
+        }
+
+        /**
+         * @return true if the city is already in the partial journey
+         */
+        boolean visits(int c) {
+            for (Label l = this; l != null; l = l.parent)
+                if (l.city == c) return true;
+            return false;
+        }
+    }
+
+    private final JourneysList catalog;
+
+    ParetoRouter(JourneysList catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * compute the Pareto optimal journeys (duration, cost, co2, confort) from start to stop
+     *
+     * @param start     id of the departure
+     * @param stop      id of the arrival
+     * @param date      ideal departure date
+     * @param late      additional allowed time added to the departure date for the first journey (in mn.)
+     * @param maxRounds maximal number of journeys in a composed journey
+     * @return the Pareto front
+     */
+    List<ComposedJourney> paretoFront(int start, int stop, int date, int late, int maxRounds) {
+        int latestFirstDeparture = Journey.addTime(date, late);
+        var targets = new ArrayList<Label>();
+        if (start < 0 || stop < 0) return front(targets);
+        List<Label> current = List.of(new Label(start, date, Integer.MAX_VALUE, 0, 0, 0, null, null));
+        for (int round = 1; round <= maxRounds && !current.isEmpty(); round++) {
+            Map<Integer, List<Label>> bags = new HashMap<>();
+            for (Label label : current) {
+                var list = catalog.allJourneysFrom(label.city);
+                if (list == null) continue;
+                for (Journey j : list) {
+                    if (label.visits(j.stopId)) continue;
+                    boolean bike = j.meansType.isBike(); // bike can be taken anytime
+                    int departure = bike ? label.arrival : j.departureDate;
+                    if (departure < label.arrival) continue;
+                    if (label.parent == null && departure > latestFirstDeparture) continue;
+                    if (!j.hasAvailablePlaces(Math.max(date, departure)) || !j.isAvailableWithWeather()) continue;
+                    int arrival = bike ? Journey.addTime(departure, j.duration) : j.arrivalDate;
+                    var next = new Label(j.stopId, arrival, Math.min(label.departure, departure),
+                            label.cost + j.cost, label.co2 + j.co2, label.confort + j.confort, label, j);
+                    insert(bags.computeIfAbsent(j.stopId, s -> new ArrayList<>()), next);
+                }
+            }
+            var reached = bags.remove(stop);
+            if (reached != null) targets.addAll(reached);
+            current = new ArrayList<>();
+            for (var bag : bags.values()) current.addAll(bag);
+        }
+        return front(targets);
+    }
+
+    /**
+     * add a label into a bag if it is not dominated, and remove the labels it dominates
+     */
+    private static void insert(List<Label> bag, Label label) {
+        for (Label l : bag)
+            if (l.dominates(label)) return;
+        bag.removeIf(label::dominates);
+        bag.add(label);
+    }
+
+    /**
+     * build the composed journeys of the labels and keep the non dominated ones
+     */
+    private static List<ComposedJourney> front(List<Label> targets) {
+        var journeys = new ArrayList<ComposedJourney>(targets.size());
+        for (Label l : targets) journeys.add(buildJourney(l));
+        var result = new ArrayList<ComposedJourney>();
+        for (int i = 0; i < journeys.size(); i++) {
+            boolean dominated = false;
+            for (int k = 0; k < journeys.size() && !dominated; k++)
+                dominated = k != i && dominates(journeys.get(k), journeys.get(i), k < i);
+            if (!dominated) result.add(journeys.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * @param first true if a comes before b in the list of journeys
+     * @return true if a is at least as good as b on every criterion and better on one of them,
+     * among equal journeys only the first one is kept
+     */
+    private static boolean dominates(ComposedJourney a, ComposedJourney b, boolean first) {
+        boolean asGood = a.getDuration() <= b.getDuration() && a.getCost() <= b.getCost()
+                && a.getCo2() <= b.getCo2() && a.getConfort() >= b.getConfort();
+        if (!asGood) return false;
+        boolean better = a.getDuration() < b.getDuration() || a.getCost() < b.getCost()
+                || a.getCo2() < b.getCo2() || a.getConfort() > b.getConfort();
+        return better || first;
+    }
+
+    /**
+     * rebuild the composed journey by following the labels back to the departure
+     */
+    private static ComposedJourney buildJourney(Label label) {
+        var legs = new ArrayList<Journey>();
+        for (Label l = label; l.parent != null; l = l.parent) {
+            Journey leg = l.leg;
+            if (leg.meansType.isBike()) leg = TransferLayer.takenAt(leg, l.parent.arrival); // bike can be taken anytime
+            legs.add(leg);
+        }
+        Collections.reverse(legs);
+        ComposedJourney compo = new ComposedJourney();
+        compo.addJourneys(legs);
+        return compo;
+    }
+}
@@ -0,0 +1,312 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * enumeration of all the direct or indirect journeys between two cities, without recursion<br>
+ * the journeys of a catalog are numbered once, grouped by departure city; a found path is given as the
+ * array of the numbers of its journeys. The search uses an explicit stack kept in arrays that are allocated
+ * once by thread and reused by the next queries: nothing is allocated when a journey is tried. The weather
+ * is read once by search, and the BikeZoneManager is asked at most a few times by city and by search (see
+ * hasBike), so trying a journey only reads arrays.
+ * The search can also be read lazily as a stream of composed journeys.
+ * The paths found are the same, and in the same order, as those of JourneysList.findIndirectJourney
+ *
+ * @author emmanueladam
+ */
+public final class PathEnumerator {
+    /**
+     * receiver of the paths found
+     */
+    @FunctionalInterface
+    public interface PathConsumer {
+        /**
+         * @param legs   numbers of the journeys of the path, in the first 'length' cells; the array is reused
+         *               by the search and has to be copied to be kept
+         * @param length nb of journeys in the path
+         */
+        void accept(int[] legs, int length);
+    }
+
+    /**
+     * nb of cities known by the city dictionary when the enumerator was built
+     */
+    private final int nbCities;
+    /**
+     * journeys grouped by departure city
+     */
+    private final Journey[] legs;
+    /**
+     * number of the first journey of each departure city (nbCities + 1 values)
+     */
+    private final int[] firstLeg;
+    /**
+     * id of the arrival city of each journey
+     */
+    private final int[] stopOf;
+    /**
+     * true for the bike journeys, that can be taken anytime
+     */
+    private final boolean[] bike;
+    /**
+     * stacks of the search, allocated once by thread
+     */
+    private final ThreadLocal<Stack> stacks;
+    /**
+     * cities that can reach each arrival: the search never enters the other ones
+     */
+    private final Reachability reachability;
+
+    /**
+     * number the journeys of a catalog
+     *
+     * @param catalog      the journeys
+     * @param reachability reachability between the cities of the catalog
+     */
+    PathEnumerator(JourneysList catalog, Reachability reachability) {
+        this.reachability = reachability;
+        nbCities = CityDictionary.getInstance().size();
+        firstLeg = new int[nbCities + 1];
+        var all = new ArrayList<Journey>();
+        for (int c = 0; c < nbCities; c++) {
+            var list = catalog.allJourneysFrom(c);
+            // the bikes after the timed journeys, as in the transfer layer of the catalog
+            if (list != null) {
+                for (Journey j : list) if (!j.meansType.isBike()) all.add(j);
+                for (Journey j : list) if (j.meansType.isBike()) all.add(j);
+            }
+            firstLeg[c + 1] = all.size();
+        }
+        legs = all.toArray(new Journey[0]);
+        stopOf = new int[legs.length];
+        bike = new boolean[legs.length];
+        for (int i = 0; i < legs.length; i++) {
+            stopOf[i] = legs[i].stopId;
+            bike[i] = legs[i].meansType.isBike();
+        }
+        stacks = ThreadLocal.withInitial(() -> new Stack(nbCities));
+    }
+
+    /**
+     * enumerate the direct or indirect journeys from start to stop; the first journey leaves between date
+     * and date + late (in mn.), the waiting time between 2 journeys is less than late
+     *
+     * @param start    departure
+     * @param stop     arrival
+     * @param date     ideal departure date
+     * @param late     additional allowed time added to the departure date (in mn.) or to wait between 2 journeys
+     * @param consumer receiver of the paths found
+     * @return nb of paths found
+     */
+    public int enumerate(String start, String stop, int date, int late, PathConsumer consumer) {
+        var search = search(start, stop, date, late, stacks.get());
+        if (search == null) return 0;
+        int nbPaths = 0;
+        for (int length = search.next(); length > 0; length = search.next()) {
+            nbPaths++;
+            consumer.accept(search.stack.path, length);
+        }
+        return nbPaths;
+    }
+
+    /**
+     * give the direct or indirect journeys from start to stop as they are found: the search goes on only when
+     * the stream asks for the next journey, so a stream limited to n journeys (or stopped at the first
+     * journey good enough) ends the search
+     *
+     * @param start departure
+     * @param stop  arrival
+     * @param date  ideal departure date
+     * @param late  additional allowed time added to the departure date (in mn.) or to wait between 2 journeys
+     * @return the stream of the journeys, in the order of findIndirectJourney
+     */
+    public Stream<ComposedJourney> stream(String start, String stop, int date, int late) {
+        // the stack belongs to the stream, several streams can be read at the same time
+        var search = search(start, stop, date, late, new Stack(nbCities));
+        if (search == null) return Stream.empty();
+        var journeys = new Spliterators.AbstractSpliterator<ComposedJourney>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            @Override
+            public boolean tryAdvance(Consumer<? super ComposedJourney> action) {
+                int length = search.next();
+                if (length < 0) return false;
+                action.accept(toComposedJourney(search.stack.path, length, date));
+                return true;
+            }
+        };
+        return StreamSupport.stream(journeys, false);
+    }
+
+    /**
+     * @return a search from start to stop using the stack, null if a city is unknown
+     */
+    private Search search(String start, String stop, int date, int late, Stack stack) {
+        var cities = CityDictionary.getInstance();
+        int from = cities.find(start);
+        int to = cities.find(stop);
+        if (from < 0 || to < 0 || from >= nbCities || to >= nbCities) return null;
+        if (!reachability.canReach(from, to)) return null; // no route, nothing to explore
+        return new Search(stack, from, to, date, late);
+    }
+
+    /**
+     * state of a search, that can be stopped after each path found and resumed
+     */
+    private final class Search {
+        final Stack stack;
+        private final int to;
+        private final int late;
+        /**
+         * true if the weather allows the bikes, read once by search
+         */
+        private final boolean bikes;
+        /**
+         * depth of the last city of the current path, -1 when the search is over
+         */
+        private int depth;
+
+        Search(Stack stack, int from, int to, int date, int late) {
+            this.stack = stack;
+            this.to = to;
+            this.late = late;
+            bikes = TransferLayer.isAllowed();
+            Arrays.fill(stack.availableFrom, Integer.MAX_VALUE);
+            Arrays.fill(stack.unavailableUntil, Integer.MIN_VALUE);
+            stack.visited.clear();
+            reachability.excludeDeadEnds(stack.visited, to);
+            stack.city[0] = from;
+            stack.time[0] = date;
+            stack.next[0] = firstLeg[from];
+            stack.visited.set(from);
+        }
+
+        /**
+         * continue the search until the next path
+         *
+         * @return nb of journeys of the path found (given by stack.path), -1 if there is no more path
+         */
+        int next() {
+            int[] path = stack.path;
+            int[] city = stack.city;
+            int[] time = stack.time;
+            int[] next = stack.next;
+            var visited = stack.visited;
+            while (depth >= 0) {
+                if (next[depth] == firstLeg[city[depth] + 1]) { // all the journeys from this city have been tried
+                    visited.clear(city[depth]);
+                    depth--;
+                    continue;
+                }
+                int leg = next[depth]++;
+                int c = stopOf[leg];
+                if (visited.get(c)) continue;
+                var j = legs[leg];
+                int t = time[depth];
+                if (bike[leg]) {
+                    if (!bikes || !hasBike(j, city[depth], t)) continue;
+                } else if (j.departureDate < t || j.departureDate > Journey.addTime(t, late) || j.getPlaces() <= 0)
+                    continue;
+                path[depth] = leg;
+                if (c == to) return depth + 1;
+                depth++;
+                city[depth] = c;
+                time[depth] = bike[leg] ? Journey.addTime(t, j.duration) : j.arrivalDate; // bike can be taken anytime
+                next[depth] = firstLeg[c];
+                visited.set(c);
+            }
+            return -1;
+        }
+
+        /**
+         * @param j    a bike journey
+         * @param from id of its departure city
+         * @param t    date at which it is taken
+         * @return true if the BikeZoneManager has a bike in the city at this date; no bike is booked during a
+         * search, so a city that has a bike at a date still has one later: the manager is asked only for a date
+         * between the latest date without bike and the earliest date with a bike already known for the city
+         */
+        private boolean hasBike(Journey j, int from, int t) {
+            int date = Math.max(t, j.departureDate);
+            if (date >= stack.availableFrom[from]) return true;
+            if (date <= stack.unavailableUntil[from]) return false;
+            if (j.hasAvailablePlaces(date)) {
+                stack.availableFrom[from] = date;
+                return true;
+            }
+            stack.unavailableUntil[from] = date;
+            return false;
+        }
+    }
+
+    /**
+     * @param leg number of a journey
+     * @return the journey
+     */
+    public Journey leg(int leg) {
+        return legs[leg];
+    }
+
+    /**
+     * build the composed journey of a path
+     *
+     * @param path   numbers of the journeys of the path
+     * @param length nb of journeys in the path
+     * @param date   ideal departure date used for the enumeration (departure of a first bike journey)
+     * @return the composed journey, the bike journeys being copied with their dates
+     */
+    public ComposedJourney toComposedJourney(int[] path, int length, int date) {
+        var journeys = new ArrayList<Journey>(length);
+        int t = date;
+        for (int i = 0; i < length; i++) {
+            var j = legs[path[i]];
+            if (bike[path[i]]) j = TransferLayer.takenAt(j, t); // bike can be taken anytime
+            journeys.add(j);
+            t = j.arrivalDate;
+        }
+        var compo = new ComposedJourney();
+        compo.addJourneys(journeys);
+        return compo;
+    }
+
+    /**
+     * @param path   numbers of the journeys of a path
+     * @param length nb of journeys in the path
+     * @return a copy of the path, that can be kept
+     */
+    public static int[] copy(int[] path, int length) {
+        return Arrays.copyOf(path, length);
+    }
+
+    /**
+     * explicit stack of a search: for each depth, the city reached, the date of arrival in this city,
+     * the next journey to try from this city and the journey taken from it; and for each city, the dates
+     * at which the search knows that a bike is available or not
+     */
+    private static final class Stack {
+        final int[] path;
+        final int[] city;
+        final int[] time;
+        final int[] next;
+        final BitSet visited;
+        final int[] availableFrom;
+        final int[] unavailableUntil;
+
+        Stack(int nbCities) {
+            // a path visits each city at most once
+            path = new int[nbCities];
+            city = new int[nbCities];
+            time = new int[nbCities];
+            next = new int[nbCities];
+            visited = new BitSet(nbCities);
+            availableFrom = new int[nbCities];
+            unavailableUntil = new int[nbCities];
+        }
+    }
+}
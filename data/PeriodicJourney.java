@@ -0,0 +1,151 @@
+package data;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * journey repeated at a regular frequency: the first journey, the frequency (in mn.) and the nb of journeys<br>
+ * the journeys of the sequence (the occurrences) are not stored: the date of the k-th one is computed, and
+ * an occurrence is built only when a search needs it. An occurrence is kept only when a place is booked on it,
+ * to remember its remaining places
+ *
+ * @author emmanueladam
+ */
+@SuppressWarnings("serial")
+public class PeriodicJourney implements Serializable {
+    /**
+     * first journey of the sequence, model of the others
+     */
+    private final Journey first;
+    /**
+     * nb of mn between two departures
+     */
+    private final int frequency;
+    /**
+     * nb of journeys of the sequence (the first one included)
+     */
+    private final int count;
+    /**
+     * occurrences on which places have been booked, by rank
+     */
+    private final Map<Integer, Journey> booked;
+
+    /**
+     * @param first     first journey of the sequence
+     * @param frequency nb of mn between two departures
+     * @param count     nb of journeys of the sequence (the first one included)
+     */
+    public PeriodicJourney(Journey first, int frequency, int count) {
+        this.first = first;
+        this.frequency = frequency;
+        this.count = count;
+        booked = new HashMap<>();
+    }
+
+    /**
+     * copy of the sequence, with its own copies of the booked occurrences
+     */
+    private PeriodicJourney(PeriodicJourney p, Journey first) {
+        this(first, p.frequency, p.count);
+        p.booked.forEach((k, j) -> booked.put(k, j.clone()));
+    }
+
+    /**
+     * @return the first journey of the sequence
+     */
+    public Journey getFirst() {
+        return first;
+    }
+
+    public int getFrequency() {
+        return frequency;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @param k rank of an occurrence (0 for the first journey)
+     * @return departure date of the occurrence, format hhmm
+     */
+    public int departure(int k) {
+        return Journey.addTime(first.departureDate, k * frequency);
+    }
+
+    /**
+     * @param date a date, format hhmm
+     * @return rank of the first occurrence that leaves at or after date (count if there is none)
+     */
+    public int firstAfter(int date) {
+        int wait = Journey.toMinutes(date) - Journey.toMinutes(first.departureDate);
+        if (wait <= 0) return 0;
+        if (frequency <= 0) return count;
+        return Math.min(count, (wait + frequency - 1) / frequency);
+    }
+
+    /**
+     * @param departure a departure date, format hhmm
+     * @return rank of the occurrence that leaves at this date, -1 if there is none
+     */
+    public int rankOf(int departure) {
+        int k = firstAfter(departure);
+        return (k < count && departure(k) == departure) ? k : -1;
+    }
+
+    /**
+     * @param k rank of an occurrence
+     * @return a new journey, or the occurrence kept by the sequence if places have been booked on it
+     */
+    public Journey occurrence(int k) {
+        var j = booked.get(k);
+        if (j != null) return j;
+        // the first journey is never booked: its clone has all the places of the means
+        j = first.clone();
+        j.setDepartureDate(departure(k));
+        return j;
+    }
+
+    /**
+     * add the occurrences that leave between two dates to a list
+     *
+     * @param from   minimum departure date
+     * @param to     maximum departure date
+     * @param result list in which the occurrences are added, by departure date
+     */
+    void addOccurrences(int from, int to, List<Journey> result) {
+        for (int k = firstAfter(from); k < count && departure(k) <= to; k++) result.add(occurrence(k));
+    }
+
+    /**
+     * get the occurrence of rank k to book places on it: it is then kept with its remaining places
+     *
+     * @param k rank of an occurrence
+     * @return the occurrence kept by the sequence
+     */
+    Journey bookedOccurrence(int k) {
+        return booked.computeIfAbsent(k, this::occurrence);
+    }
+
+    /**
+     * @return a copy of the sequence that can be modified without changing this one
+     */
+    PeriodicJourney copy() {
+        return new PeriodicJourney(this, first.clone());
+    }
+
+    /**
+     * adjust the first journey and the booked occurrences to the current weather
+     */
+    void refreshWeatherAdjustments() {
+        first.refreshWeatherAdjustments();
+        booked.values().forEach(Journey::refreshWeatherAdjustments);
+    }
+
+    @Override
+    public String toString() {
+        return first + ", every " + frequency + " mn, " + count + " times";
+    }
+}
@@ -0,0 +1,62 @@
+package data;
+
+import java.util.Comparator;
+
+/**
+ * criterion used by a traveller to choose a journey<br>
+ * a preference gives a score to a composed journey (the lower, the better) and, when it is possible,
+ * a lower bound of this score for a journey that is not finished: this bound never decreases when a
+ * journey is added, so a partial journey whose bound is already worse than the k best journeys found
+ * can be abandoned
+ *
+ * @author emmanueladam
+ */
+public enum Preference {
+    COST, DURATION, CONFORT, DURATION_COST;
+
+    /**
+     * @param name name of the preference, as given by the traveller (cost, duration, confort, duration-cost)
+     * @return the preference, COST if the name is unknown
+     */
+    public static Preference of(String name) {
+        if (name == null) return COST;
+        return switch (name.trim().toLowerCase()) {
+            case "duration" -> DURATION;
+            case "confort" -> CONFORT;
+            case "duration-cost" -> DURATION_COST;
+            default -> COST;
+        };
+    }
+
+    /**
+     * @param journey a composed journey
+     * @return score of the journey for this preference, the lower the better
+     */
+    public double score(ComposedJourney journey) {
+        if (this == CONFORT) return -journey.getConfort();
+        return bound(journey.getDuration(), journey.getCost());
+    }
+
+    /**
+     * lower bound of the score of any journey that begins with a given partial journey
+     *
+     * @param duration duration of the partial journey, from its first departure to its last arrival (in mn.)
+     * @param cost     cost of the partial journey
+     * @return the bound, -infinity if the preference cannot be bounded (the confort is an average)
+     */
+    double bound(int duration, double cost) {
+        return switch (this) {
+            case COST -> cost;
+            case DURATION -> duration;
+            case DURATION_COST -> duration + cost;
+            case CONFORT -> Double.NEGATIVE_INFINITY;
+        };
+    }
+
+    /**
+     * @return comparator of the composed journeys, the best journey first
+     */
+    public Comparator<ComposedJourney> comparator() {
+        return Comparator.comparingDouble(this::score);
+    }
+}
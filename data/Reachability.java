@@ -0,0 +1,130 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * reachability between the cities of a catalog, whatever the dates, the places and the weather<br>
+ * if a city cannot reach the arrival with the journeys of the catalog, no search can go through it:
+ * a query without route is rejected at once, and the cities that cannot reach the arrival are never visited.
+ * The set of the cities that can reach an arrival is computed at the first query to this arrival
+ * (backward traversal of the graph of the cities) and then kept
+ *
+ * @author emmanueladam
+ */
+final class Reachability {
+    /**
+     * nb of cities known by the city dictionary when the structure was built
+     */
+    private final int nbCities;
+    /**
+     * for each city, the ids of the cities from which a journey arrives in it (without duplicates)
+     */
+    private final int[][] predecessors;
+    /**
+     * for each arrival, the cities that cannot reach it (null until the first query)
+     */
+    private final AtomicReferenceArray<BitSet> deadEnds;
+
+    /**
+     * build the graph of the cities of a catalog
+     *
+     * @param catalog the journeys
+     */
+    Reachability(JourneysList catalog) {
+        nbCities = CityDictionary.getInstance().size();
+        var from = new ArrayList<BitSet>(nbCities);
+        for (int c = 0; c < nbCities; c++) from.add(new BitSet());
+        for (int c = 0; c < nbCities; c++) {
+            var list = catalog.journeysFrom(c);
+            if (list == null) continue;
+            for (Journey j : list)
+                if (j.stopId < nbCities) from.get(j.stopId).set(c);
+        }
+        // a periodic journey goes where its first journey goes, its occurrences are not needed
+        for (int c = 0; c < nbCities; c++) {
+            var list = catalog.periodicFrom(c);
+            if (list == null) continue;
+            for (var p : list)
+                if (p.getFirst().stopId < nbCities) from.get(p.getFirst().stopId).set(c);
+        }
+        predecessors = new int[nbCities][];
+        for (int c = 0; c < nbCities; c++) predecessors[c] = from.get(c).stream().toArray();
+        deadEnds = new AtomicReferenceArray<>(nbCities);
+    }
+
+    /**
+     * copy of a structure with other predecessors, the sets of dead ends are computed again when needed
+     */
+    private Reachability(int nbCities, int[][] predecessors) {
+        this.nbCities = nbCities;
+        this.predecessors = predecessors;
+        deadEnds = new AtomicReferenceArray<>(nbCities);
+    }
+
+    /**
+     * give the reachability of the catalog after the addition of a journey, without traversing the catalog
+     *
+     * @param start id of the departure of the journey
+     * @param stop  id of its arrival
+     * @return this if the cities were already linked, a copy with the new link otherwise;
+     * null if a city is unknown by this structure (it has to be built again)
+     */
+    Reachability withEdge(int start, int stop) {
+        if (start < 0 || start >= nbCities || stop < 0 || stop >= nbCities) return null;
+        var before = predecessors[stop];
+        for (int c : before) if (c == start) return this;
+        var copy = predecessors.clone();
+        copy[stop] = Arrays.copyOf(before, before.length + 1);
+        copy[stop][before.length] = start;
+        return new Reachability(nbCities, copy);
+    }
+
+    /**
+     * @param from a city id
+     * @param stop an arrival id
+     * @return false if no sequence of journeys goes from 'from' to 'stop'
+     */
+    boolean canReach(int from, int stop) {
+        if (from < 0 || from >= nbCities || stop < 0 || stop >= nbCities) return false;
+        return from == stop || !deadEnds(stop).get(from);
+    }
+
+    /**
+     * @param stop an arrival id (lower than the nb of cities of the structure)
+     * @return the ids of the cities that cannot reach stop; the set must not be modified
+     */
+    BitSet deadEnds(int stop) {
+        var dead = deadEnds.get(stop);
+        if (dead == null) {
+            var reaching = new BitSet(nbCities);
+            reaching.set(stop);
+            var toVisit = new ArrayDeque<Integer>();
+            toVisit.add(stop);
+            while (!toVisit.isEmpty())
+                for (int c : predecessors[toVisit.poll()])
+                    if (!reaching.get(c)) {
+                        reaching.set(c);
+                        toVisit.add(c);
+                    }
+            dead = new BitSet(nbCities);
+            dead.set(0, nbCities);
+            dead.andNot(reaching);
+            deadEnds.set(stop, dead);
+        }
+        return dead;
+    }
+
+    /**
+     * mark as visited the cities that cannot reach stop, so that a search never enters them
+     *
+     * @param visited cities already visited by a search
+     * @param stop    an arrival id
+     */
+    void excludeDeadEnds(BitSet visited, int stop) {
+        if (stop >= 0 && stop < nbCities) visited.or(deadEnds(stop));
+    }
+}
@@ -0,0 +1,125 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * cache of the results of the journey searches, limited to a nb of queries (the least recently used query
+ * is forgotten first)<br>
+ * a result is kept with the stamp of the catalog in which it has been searched and is given back only for a
+ * catalog with the same stamp: a booking that fills a journey, a change of the weather factors or the removal of
+ * a journey gives a new stamp to the catalog. The places of the bikes are not in the catalog: when the weather
+ * allows the bikes, a result is also kept with the version of the BikeZoneManager, and is given back only if no
+ * bike has been taken or returned since. The results that use a journey can also be removed directly,
+ * when an alert closes a road for example
+ *
+ * @author emmanueladam
+ */
+public class RouteCache {
+    /**
+     * a query: departure, arrival, departure date, allowed delay, preference, nb of journeys wanted, and
+     * whether the weather allows the bikes
+     */
+    private record Query(String start, String stop, int date, int late, Preference preference, int k,
+                         boolean bikes) {
+    }
+
+    /**
+     * results of a query in the catalog of a given stamp, with the given version of the bikes
+     */
+    private record Result(long stamp, long bikes, List<ComposedJourney> journeys) {
+    }
+
+    /**
+     * results by query, in the order of their last use
+     */
+    private final LinkedHashMap<Query, Result> results;
+
+    /**
+     * @param capacity maximal nb of queries kept
+     */
+    public RouteCache(int capacity) {
+        results = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Query, Result> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * @param start      departure
+     * @param stop       arrival
+     * @param date       ideal departure date
+     * @param late       additional allowed time (in mn.)
+     * @param preference criterion used to compare the journeys
+     * @param k          nb of journeys wanted
+     * @param catalog    catalog in which the journeys are searched
+     * @return a copy of the list of journeys found for the same query in a catalog with the same stamp
+     * and the same bikes, null if there is none
+     */
+    public synchronized List<ComposedJourney> get(String start, String stop, int date, int late,
+                                                  Preference preference, int k, JourneysList catalog) {
+        var query = query(start, stop, date, late, preference, k);
+        var result = results.get(query);
+        if (result == null || result.stamp() != catalog.getStamp() || result.bikes() != bikesVersion(query))
+            return null;
+        return new ArrayList<>(result.journeys());
+    }
+
+    /**
+     * keep the journeys found for a query
+     *
+     * @param start      departure
+     * @param stop       arrival
+     * @param date       ideal departure date
+     * @param late       additional allowed time (in mn.)
+     * @param preference criterion used to compare the journeys
+     * @param k          nb of journeys wanted
+     * @param catalog    catalog in which the journeys have been searched
+     * @param journeys   journeys found
+     */
+    public synchronized void put(String start, String stop, int date, int late, Preference preference, int k,
+                                 JourneysList catalog, List<ComposedJourney> journeys) {
+        var query = query(start, stop, date, late, preference, k);
+        results.put(query, new Result(catalog.getStamp(), bikesVersion(query), List.copyOf(journeys)));
+    }
+
+    /**
+     * @return the version of the bikes if the query can use them, 0 else
+     */
+    private static long bikesVersion(Query query) {
+        return query.bikes() ? BikeZoneManager.getInstance().getVersion() : 0;
+    }
+
+    /**
+     * forget the results that use a journey
+     *
+     * @param leg predicate that recognizes the journeys that can no more be used
+     */
+    public synchronized void invalidate(Predicate<Journey> leg) {
+        results.values().removeIf(r -> r.journeys().stream().anyMatch(c -> c.getJourneys().stream().anyMatch(leg)));
+    }
+
+    /**
+     * forget all the results
+     */
+    public synchronized void clear() {
+        results.clear();
+    }
+
+    /**
+     * @return nb of queries kept
+     */
+    public synchronized int size() {
+        return results.size();
+    }
+
+    private static Query query(String start, String stop, int date, int late, Preference preference, int k) {
+        return new Query(CityDictionary.normalize(start), CityDictionary.normalize(stop), date, late, preference, k,
+                WeatherManager.getInstance().areBikeJourneysAllowed());
+    }
+}
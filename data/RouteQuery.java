@@ -0,0 +1,14 @@
+package data;
+
+import java.io.Serializable;
+
+/**
+ * a route query of a traveller, answered with other queries by JourneysList.findEarliestJourneys
+ *
+ * @param from      departure
+ * @param to        arrival
+ * @param departure ideal departure date, format hhmm
+ * @author emmanueladam
+ */
+public record RouteQuery(String from, String to, int departure) implements Serializable {
+}
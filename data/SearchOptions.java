@@ -0,0 +1,146 @@
+package data;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * limits of a journey search: maximal nb of journeys in a composed journey, maximal nb of expanded partial
+ * journeys and time limit<br>
+ * when the nb of expansions or the time is over, the search stops and returns the journeys found so far;
+ * isTruncated then tells that better journeys may exist. An object is used by one search at a time,
+ * its counters are reset at the beginning of each search; they can be shared by the tasks of a parallel
+ * search, that then have one budget and one deadline
+ *
+ * @author emmanueladam
+ */
+public class SearchOptions {
+    /**
+     * nb of expansions between two readings of the clock
+     */
+    private static final int CLOCK_PERIOD = 64;
+    /**
+     * maximal nb of journeys in a composed journey
+     */
+    private int maxLegs = Integer.MAX_VALUE;
+    /**
+     * maximal nb of partial journeys extended by the search
+     */
+    private long maxExpanded = Long.MAX_VALUE;
+    /**
+     * maximal duration of the search, in ms
+     */
+    private long timeLimit = Long.MAX_VALUE;
+    /**
+     * true if the search explores first the journeys that can arrive the soonest (see Landmarks)
+     */
+    private boolean goalDirected;
+    /**
+     * date (System.currentTimeMillis) at which the current search has to stop
+     */
+    private volatile long deadline;
+    /**
+     * nb of partial journeys extended by the current search
+     */
+    private final AtomicLong expanded = new AtomicLong();
+    /**
+     * true if the current search has been stopped before its end
+     */
+    private volatile boolean truncated;
+
+    /**
+     * @param maxLegs maximal nb of journeys in a composed journey
+     * @return this options
+     */
+    public SearchOptions setMaxLegs(int maxLegs) {
+        this.maxLegs = maxLegs;
+        return this;
+    }
+
+    /**
+     * @param maxExpanded maximal nb of partial journeys extended by a search
+     * @return this options
+     */
+    public SearchOptions setMaxExpanded(long maxExpanded) {
+        this.maxExpanded = maxExpanded;
+        return this;
+    }
+
+    /**
+     * @param timeLimit maximal duration of a search, in ms
+     * @return this options
+     */
+    public SearchOptions setTimeLimit(long timeLimit) {
+        this.timeLimit = timeLimit;
+        return this;
+    }
+
+    /**
+     * @param goalDirected true to explore first the journeys that can arrive the soonest, and to abandon
+     *                     those that cannot be better than the journeys found, from lower bounds of the
+     *                     travel time to the arrival
+     * @return this options
+     */
+    public SearchOptions setGoalDirected(boolean goalDirected) {
+        this.goalDirected = goalDirected;
+        return this;
+    }
+
+    public int getMaxLegs() {
+        return maxLegs;
+    }
+
+    public long getMaxExpanded() {
+        return maxExpanded;
+    }
+
+    public long getTimeLimit() {
+        return timeLimit;
+    }
+
+    public boolean isGoalDirected() {
+        return goalDirected;
+    }
+
+    /**
+     * @return nb of partial journeys extended by the last search
+     */
+    public long getExpanded() {
+        return expanded.get();
+    }
+
+    /**
+     * @return true if the last search has been stopped by the nb of expansions or by the time limit
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * reset the counters at the beginning of a search
+     */
+    void start() {
+        expanded.set(0);
+        truncated = false;
+        long now = System.currentTimeMillis();
+        deadline = (timeLimit > Long.MAX_VALUE - now) ? Long.MAX_VALUE : now + timeLimit;
+    }
+
+    /**
+     * count the extension of a partial journey
+     *
+     * @return false if the budget of the search is over (the search has to stop)
+     */
+    boolean expand() {
+        if (truncated) return false;
+        long n = expanded.incrementAndGet();
+        if (n > maxExpanded || (n % CLOCK_PERIOD == 1 && System.currentTimeMillis() > deadline)) truncated = true;
+        return !truncated;
+    }
+
+    /**
+     * @param nbLegs nb of journeys of a partial journey
+     * @return true if a journey can be added to the partial journey
+     */
+    boolean canExtend(int nbLegs) {
+        return nbLegs < maxLegs;
+    }
+}
@@ -0,0 +1,288 @@
+package data;
+
+import java.util.*;
+
+/**
+ * read only timetable whose journeys are stored as columns (in the heap or in a mapped file)<br>
+ * the journeys are grouped by departure city and sorted by departure date inside a group: the journeys
+ * from the city of index c are the indexes firstTrip(c) to firstTrip(c+1)-1.
+ * Only the base duration and the base cost are stored, the weather adjustments are applied during the
+ * queries; a Journey object is only built for the journeys returned by a query.
+ * The subclasses give the access to the columns, the queries are written here once
+ *
+ * @author emmanueladam
+ */
+public abstract class Timetable {
+
+    /**
+     * @return nb of cities of the timetable (the indexes of the cities are between 0 and nbCities - 1)
+     */
+    abstract int nbCities();
+
+    /**
+     * @param city name of a city
+     * @return index of the city in the timetable, -1 if there is no such city
+     */
+    abstract int cityIndex(String city);
+
+    /**
+     * @return normalized name of the city of index 'city'
+     */
+    abstract String cityName(int city);
+
+    /**
+     * @return index of the first journey from the city of index c (c can be nbCities)
+     */
+    abstract int firstTrip(int c);
+
+    /**
+     * @return nb of journeys in the timetable
+     */
+    public abstract int size();
+
+    abstract int start(int trip);
+
+    abstract int stop(int trip);
+
+    abstract int departure(int trip);
+
+    /**
+     * @return duration of the journey before the weather adjustments
+     */
+    abstract int baseDuration(int trip);
+
+    /**
+     * @return cost of the journey before the weather adjustments
+     */
+    abstract double baseCost(int trip);
+
+    abstract int co2(int trip);
+
+    abstract int confort(int trip);
+
+    /**
+     * @return name of the means of the journey, as read in the csv file
+     */
+    abstract String meansName(int trip);
+
+    abstract Means meansType(int trip);
+
+    /**
+     * @return name of the agency that proposes the journey, null if none
+     */
+    abstract String provider(int trip);
+
+    /**
+     * @return remaining places of the journey
+     */
+    abstract int places(int trip);
+
+    /**
+     * remove one place from the journey
+     */
+    abstract void takePlace(int trip);
+
+    /**
+     * @return nb of timed journeys (not bikes)
+     */
+    abstract int nbTimed();
+
+    /**
+     * @return index of the k-th timed journey, ordered by departure date
+     */
+    abstract int timed(int k);
+
+    /**
+     * @param trip index of a journey
+     * @return a Journey object for this journey, adjusted to the current weather
+     */
+    public Journey journey(int trip) {
+        var j = new Journey(cityName(start(trip)), cityName(stop(trip)), meansName(trip), departure(trip),
+                baseDuration(trip), baseCost(trip), co2(trip), confort(trip), provider(trip));
+        j.setPlaces(places(trip));
+        return j;
+    }
+
+    /**
+     * @param proposedBy name of the agency that proposes the journeys, null to keep the names of the timetable
+     * @return all the journeys of the timetable as a catalog of Journey objects
+     */
+    public JourneysList toJourneysList(String proposedBy) {
+        var catalog = new JourneysList();
+        for (int i = 0; i < size(); i++) {
+            var j = journey(i);
+            if (proposedBy != null) j.setProposedBy(proposedBy);
+            catalog.addJourney(j);
+        }
+        return catalog;
+    }
+
+    /**
+     * book a place on a journey
+     *
+     * @param trip        index of the journey
+     * @param currentTime current time for bike zone management
+     * @return true if booking successful, false if no places available
+     */
+    public boolean bookPlace(int trip, int currentTime) {
+        if (meansType(trip).isBike()) {
+            int arrival = Journey.addTime(departure(trip), baseDuration(trip));
+            return BikeZoneManager.getInstance().bookBike(cityName(start(trip)), cityName(stop(trip)),
+                    arrival, currentTime);
+        }
+        if (places(trip) > 0) {
+            takePlace(trip);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * find the direct journeys between 'start' and 'stop' that leave at or after a date
+     *
+     * @param from departure
+     * @param to   arrival
+     * @param date minimum departure date
+     * @return list of the direct journeys, null if there is none
+     */
+    public ArrayList<Journey> findDirectJourneys(String from, String to, int date) {
+        int s = cityIndex(from);
+        int d = cityIndex(to);
+        if (s < 0 || d < 0) return null;
+        var weather = new WeatherView();
+        ArrayList<Journey> result = null;
+        for (int i = firstDepartureAfter(s, date); i < firstTrip(s + 1); i++) {
+            if (stop(i) != d || !isAvailable(i, Math.max(date, departure(i)), weather)) continue;
+            if (result == null) result = new ArrayList<>();
+            result.add(journey(i));
+        }
+        return result;
+    }
+
+    /**
+     * compute the journey from start to stop that arrives as soon as possible (connection scan on the columns)
+     *
+     * @param from departure
+     * @param to   arrival
+     * @param date ideal departure date
+     * @param late additional allowed time added to the departure date for the first timed journey (in mn.)
+     * @return the earliest arrival journey, null if there is none
+     */
+    public ComposedJourney findEarliestJourney(String from, String to, int date, int late) {
+        int s = cityIndex(from);
+        int d = cityIndex(to);
+        if (s < 0 || d < 0 || s == d) return null;
+        int nb = nbCities();
+        var weather = new WeatherView();
+        int[] arrival = new int[nb];
+        Arrays.fill(arrival, Integer.MAX_VALUE);
+        int[] inTrip = new int[nb];
+        Arrays.fill(inTrip, -1);
+        int[] bikeDeparture = new int[nb];
+        arrival[s] = date;
+        relaxBikes(s, arrival, inTrip, bikeDeparture, weather);
+        int latestFirstDeparture = Journey.addTime(date, late);
+        int low = 0;
+        int high = nbTimed();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (departure(timed(mid)) < date) low = mid + 1;
+            else high = mid;
+        }
+        for (int k = low; k < nbTimed(); k++) {
+            int i = timed(k);
+            int dep = departure(i);
+            if (dep > arrival[d]) break;
+            int o = start(i);
+            if (arrival[o] > dep) continue;
+            if (o == s && dep > latestFirstDeparture) continue;
+            int a = weather.arrival(i);
+            int c = stop(i);
+            if (a >= arrival[c] || !isAvailable(i, Math.max(date, dep), weather)) continue;
+            arrival[c] = a;
+            inTrip[c] = i;
+            relaxBikes(c, arrival, inTrip, bikeDeparture, weather);
+        }
+        if (inTrip[d] < 0) return null;
+        var legs = new ArrayList<Journey>();
+        for (int city = d; city != s; city = start(inTrip[city])) {
+            Journey leg = journey(inTrip[city]);
+            if (leg.meansType.isBike()) {
+                leg.departureDate = bikeDeparture[city]; // bike can be taken anytime
+                leg.arrivalDate = Journey.addTime(leg.departureDate, leg.duration);
+            }
+            legs.add(leg);
+        }
+        Collections.reverse(legs);
+        var compo = new ComposedJourney();
+        compo.addJourneys(legs);
+        return compo;
+    }
+
+    /**
+     * propagate the arrival date of a city through the bike journeys
+     */
+    private void relaxBikes(int city, int[] arrival, int[] inTrip, int[] bikeDeparture, WeatherView weather) {
+        Deque<Integer> toVisit = new ArrayDeque<>();
+        toVisit.push(city);
+        while (!toVisit.isEmpty()) {
+            int o = toVisit.pop();
+            for (int i = firstTrip(o); i < firstTrip(o + 1); i++) {
+                if (!meansType(i).isBike()) continue;
+                int t = Journey.addTime(arrival[o], weather.duration(i));
+                int c = stop(i);
+                if (t >= arrival[c] || !isAvailable(i, arrival[o], weather)) continue;
+                arrival[c] = t;
+                inTrip[c] = i;
+                bikeDeparture[c] = arrival[o];
+                toVisit.push(c);
+            }
+        }
+    }
+
+    /**
+     * @return true if the journey has places at currentTime and is allowed by the weather
+     */
+    private boolean isAvailable(int trip, int currentTime, WeatherView weather) {
+        if (meansType(trip).isBike())
+            return weather.bikesAllowed
+                    && BikeZoneManager.getInstance().getAvailableBikes(cityName(start(trip)), currentTime) > 0;
+        return places(trip) > 0;
+    }
+
+    /**
+     * @return index of the first journey from the city of index c that leaves at or after date
+     */
+    private int firstDepartureAfter(int c, int date) {
+        int low = firstTrip(c);
+        int high = firstTrip(c + 1);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (departure(mid) < date) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * weather factors read once for a query
+     */
+    private final class WeatherView {
+        final boolean bikesAllowed;
+        final double[] durationFactor = new double[Means.values().length];
+
+        WeatherView() {
+            var weatherManager = WeatherManager.getInstance();
+            bikesAllowed = weatherManager.areBikeJourneysAllowed();
+            for (Means m : Means.values()) durationFactor[m.ordinal()] = weatherManager.getDurationAdjustmentFactor(m);
+        }
+
+        int duration(int trip) {
+            return (int) Math.round(baseDuration(trip) * durationFactor[meansType(trip).ordinal()]);
+        }
+
+        int arrival(int trip) {
+            return Journey.addTime(departure(trip), duration(trip));
+        }
+    }
+}
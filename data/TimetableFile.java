@@ -0,0 +1,206 @@
+package data;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * csv and binary files of timetables<br>
+ * a csv line = origine, destination, means, departureTime, duration, financial cost, co2, confort,
+ * nbRepetitions(optional), frequence(optional)<br>
+ * the binary file (.ttb) can be mapped in memory by MappedTimetable, all the values are big endian:
+ * <pre>
+ * int magic, int version, int nbCities, int nbTrips, int nbNames, int nbTimed
+ * nbCities strings (int length + utf-8 bytes): names of the cities
+ * nbNames strings: names of the means and of the agencies
+ * int[nbCities + 1] firstTrip
+ * int[nbTrips] start, stop, departure, duration ; double[nbTrips] cost ; int[nbTrips] co2, confort, places, means, provider
+ * int[nbTimed] timed journeys ordered by departure date
+ * </pre>
+ *
+ * @author emmanueladam
+ */
+public class TimetableFile {
+    static final int MAGIC = 0x54544231; // "TTB1"
+    static final int VERSION = 1;
+
+    private TimetableFile() {
+    }
+
+    /**
+     * read the journeys of a csv file
+     *
+     * @param file       name of the csv file
+     * @param proposedBy name of the agency that proposes the journeys
+     * @return the catalog of the journeys of the file
+     * @throws IOException if the file cannot be read
+     */
+    public static JourneysList readCsv(String file, String proposedBy) throws IOException {
+        List<String> lines = Files.readAllLines(new File(file).toPath());
+        var catalog = new JourneysList();
+        // the cities get their id once, here, and share the same name in all the journeys
+        var cities = CityDictionary.getInstance();
+        int nbLines = lines.size();
+        for (int i = 1; i < nbLines; i++) {
+            String[] nextLine = lines.get(i).split(",");
+            String origine = cities.intern(nextLine[0]);
+            String destination = cities.intern(nextLine[1]);
+            String means = nextLine[2].trim();
+            int departureDate = Integer.parseInt(nextLine[3].trim());
+            int duration = Integer.parseInt(nextLine[4].trim());
+            double cost = Double.parseDouble(nextLine[5].trim());
+            int co2 = Integer.parseInt(nextLine[6].trim());
+            int confort = Integer.parseInt(nextLine[7].trim());
+            int nbParams = nextLine.length;
+            int nbRepetitions = (nbParams < 9) ? 0 : Integer.parseInt(nextLine[8].trim());
+            int frequence = (nbRepetitions == 0) ? 0 : Integer.parseInt(nextLine[9].trim());
+            // the nb of places is given by the means of the journey
+            Journey firstJourney = new Journey(origine, destination, means, departureDate, duration, cost, co2, confort,
+                    proposedBy);
+            if (nbRepetitions == 0) catalog.addJourney(firstJourney);
+            // a bike can be taken anytime: its repetitions are kept as separate journeys
+            else if (firstJourney.meansType.isBike()) {
+                catalog.addJourney(firstJourney);
+                repeatJourney(catalog, departureDate, nbRepetitions, frequence, firstJourney);
+            }
+            // the repetitions are not created, the searches compute the dates they need
+            else catalog.addPeriodicJourney(new PeriodicJourney(firstJourney, frequence, nbRepetitions + 1));
+        }
+        return catalog;
+    }
+
+    /**
+     * read the journeys of a csv file straight into columns, without building a Journey for each of them<br>
+     * the repetitions of the journeys are stored as separate journeys, as in the binary file
+     *
+     * @param file       name of the csv file
+     * @param proposedBy name of the agency that proposes the journeys
+     * @return the timetable of the journeys of the file
+     * @throws IOException if the file cannot be read
+     */
+    public static ColumnarCatalog readColumns(String file, String proposedBy) throws IOException {
+        var rows = new ColumnarCatalog.Rows();
+        var cities = CityDictionary.getInstance();
+        try (var lines = Files.lines(new File(file).toPath())) {
+            lines.skip(1).forEach(line -> {
+                String[] nextLine = line.split(",");
+                int origine = cities.idOf(nextLine[0]);
+                int destination = cities.idOf(nextLine[1]);
+                String means = nextLine[2].trim();
+                int departureDate = Integer.parseInt(nextLine[3].trim());
+                int duration = Integer.parseInt(nextLine[4].trim());
+                double cost = Double.parseDouble(nextLine[5].trim());
+                int co2 = Integer.parseInt(nextLine[6].trim());
+                int confort = Integer.parseInt(nextLine[7].trim());
+                int nbParams = nextLine.length;
+                int nbRepetitions = (nbParams < 9) ? 0 : Integer.parseInt(nextLine[8].trim());
+                int frequence = (nbRepetitions == 0) ? 0 : Integer.parseInt(nextLine[9].trim());
+                // the nb of places is given by the means of the journey
+                int places = Means.of(means).getCapacity();
+                for (int k = 0; k <= nbRepetitions; k++)
+                    rows.add(origine, destination, means, Journey.addTime(departureDate, k * frequence), duration,
+                            cost, co2, confort, places, proposedBy);
+            });
+        }
+        return new ColumnarCatalog(rows);
+    }
+
+    /**
+     * repeat a journey on a sequence of dates into a catalog
+     *
+     * @param departureDate date of the first journey
+     * @param nbRepetitions nb of journeys to add
+     * @param frequence     frequency of the journeys in minutes
+     * @param journey       the first journey to clone
+     */
+    private static void repeatJourney(JourneysList catalog, final int departureDate, final int nbRepetitions,
+                                      final int frequence, final Journey journey) {
+        int nextDeparture = departureDate;
+        for (int i = 0; i < nbRepetitions; i++) {
+            final Journey cloneJ = journey.clone();
+            nextDeparture = Journey.addTime(nextDeparture, frequence);
+            cloneJ.setDepartureDate(nextDeparture);
+            catalog.addJourney(cloneJ);
+        }
+    }
+
+    /**
+     * write a timetable in the binary format
+     *
+     * @param timetable the timetable to save
+     * @param file      binary file to create
+     * @throws IOException if the file cannot be written
+     */
+    public static void write(Timetable timetable, Path file) throws IOException {
+        int nbCities = timetable.nbCities();
+        int nbTrips = timetable.size();
+        var table = new HashMap<String, Integer>();
+        var names = new ArrayList<String>();
+        int[] means = new int[nbTrips];
+        int[] provider = new int[nbTrips];
+        for (int i = 0; i < nbTrips; i++) {
+            means[i] = table.computeIfAbsent(timetable.meansName(i), s -> {
+                names.add(s);
+                return names.size() - 1;
+            });
+            var agency = timetable.provider(i);
+            provider[i] = (agency == null) ? -1 : table.computeIfAbsent(agency, s -> {
+                names.add(s);
+                return names.size() - 1;
+            });
+        }
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(nbCities);
+            out.writeInt(nbTrips);
+            out.writeInt(names.size());
+            out.writeInt(timetable.nbTimed());
+            for (int c = 0; c < nbCities; c++) writeString(out, timetable.cityName(c));
+            for (String name : names) writeString(out, name);
+            for (int c = 0; c <= nbCities; c++) out.writeInt(timetable.firstTrip(c));
+            for (int i = 0; i < nbTrips; i++) out.writeInt(timetable.start(i));
+            for (int i = 0; i < nbTrips; i++) out.writeInt(timetable.stop(i));
+            for (int i = 0; i < nbTrips; i++) out.writeInt(timetable.departure(i));
+            for (int i = 0; i < nbTrips; i++) out.writeInt(timetable.baseDuration(i));
+            for (int i = 0; i < nbTrips; i++) out.writeDouble(timetable.baseCost(i));
+            for (int i = 0; i < nbTrips; i++) out.writeInt(timetable.co2(i));
+            for (int i = 0; i < nbTrips; i++) out.writeInt(timetable.confort(i));
+            for (int i = 0; i < nbTrips; i++) out.writeInt(timetable.places(i));
+            for (int i = 0; i < nbTrips; i++) out.writeInt(means[i]);
+            for (int i = 0; i < nbTrips; i++) out.writeInt(provider[i]);
+            for (int k = 0; k < timetable.nbTimed(); k++) out.writeInt(timetable.timed(k));
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        var bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * convert a csv file into a binary timetable<br>
+     * usage : TimetableFile file.csv file.ttb [agency]
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("usage : TimetableFile file.csv file.ttb [agency]");
+            return;
+        }
+        var columns = readColumns(args[0], (args.length > 2) ? args[2] : null);
+        write(columns, Path.of(args[1]));
+        System.out.println(columns.size() + " journeys written in " + args[1]);
+        // the file is read back to check it
+        var mapped = MappedTimetable.open(Path.of(args[1]));
+        if (mapped.size() == columns.size()) System.out.println(mapped.size() + " journeys read back from " + args[1]);
+        else System.out.println("error : " + mapped.size() + " journeys read back from " + args[1]);
+    }
+}
@@ -0,0 +1,402 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.IntStream;
+
+/**
+ * contraction hierarchy of the transfers (bike journeys) of a catalog<br>
+ * the transfers do not depend on the time, they form a static graph of the cities: the cities are contracted
+ * one after the other, from the least important one, and a shortcut is added between two neighbours of a
+ * contracted city when the only shortest transfer between them goes through it. A query then only goes
+ * up the hierarchy, from the departure and from the arrival, and meets in the middle: a long chain of
+ * transfers is found by visiting a few cities. The shortcuts are unpacked into the transfers of the layer
+ *
+ * @author emmanueladam
+ */
+final class TransferHierarchy {
+    /**
+     * max nb of cities settled by a search of a witness (a path that makes a shortcut useless)
+     */
+    private static final int WITNESS_LIMIT = 64;
+
+    /**
+     * link between two cities: a transfer of the layer (edge >= 0) or a shortcut made of two links
+     */
+    private record Arc(int from, int to, int duration, int edge, Arc first, Arc second) {
+    }
+
+    /**
+     * the transfers
+     */
+    private final TransferLayer layer;
+    /**
+     * order of contraction of each city (the most important city has the highest rank)
+     */
+    private final int[] rank;
+    /**
+     * for each city, the links to a city of higher rank
+     */
+    private final List<List<Arc>> up;
+    /**
+     * for each city, the links from a city of higher rank
+     */
+    private final List<List<Arc>> down;
+    /**
+     * cities linked to another one, by increasing rank
+     */
+    private final int[] byRank;
+    /**
+     * index of each city in byRank, -1 if it is not linked to another one
+     */
+    private final int[] position;
+
+    /**
+     * contract the cities of a transfer layer
+     *
+     * @param layer    the transfers
+     * @param nbCities nb of cities
+     */
+    TransferHierarchy(TransferLayer layer, int nbCities) {
+        this.layer = layer;
+        var out = new ArrayList<List<Arc>>(nbCities);
+        var in = new ArrayList<List<Arc>>(nbCities);
+        for (int c = 0; c < nbCities; c++) {
+            out.add(new ArrayList<>());
+            in.add(new ArrayList<>());
+        }
+        // the fastest transfer between two cities
+        var fastest = new HashMap<Long, Arc>();
+        for (int e = 0; e < layer.size(); e++) {
+            int from = layer.edge(e).startId;
+            int to = layer.stop(e);
+            if (from == to || from >= nbCities || to >= nbCities) continue;
+            var arc = new Arc(from, to, layer.duration(e), e, null, null);
+            fastest.merge(((long) from << 32) | to, arc, (a, b) -> (b.duration < a.duration) ? b : a);
+        }
+        var arcs = new ArrayList<Arc>(fastest.values());
+        for (var arc : arcs) {
+            out.get(arc.from).add(arc);
+            in.get(arc.to).add(arc);
+        }
+        rank = new int[nbCities];
+        var contracted = new boolean[nbCities];
+        int[] contractedNeighbours = new int[nbCities];
+        var witness = new Witness(nbCities);
+        // lazy updates: a city is contracted when its priority, computed again, is still the lowest
+        var queue = new PriorityQueue<long[]>((a, b) -> Long.compare(a[0], b[0]));
+        for (int c = 0; c < nbCities; c++)
+            queue.add(new long[]{priority(c, out, in, contractedNeighbours, witness), c});
+        int order = 0;
+        while (!queue.isEmpty()) {
+            int c = (int) queue.poll()[1];
+            if (contracted[c]) continue;
+            long p = priority(c, out, in, contractedNeighbours, witness);
+            if (!queue.isEmpty() && p > queue.peek()[0]) {
+                queue.add(new long[]{p, c});
+                continue;
+            }
+            contract(c, out, in, witness, arcs);
+            contracted[c] = true;
+            rank[c] = order++;
+            // the links of the contracted city leave the remaining graph
+            for (var arc : out.get(c)) {
+                contractedNeighbours[arc.to]++;
+                in.get(arc.to).removeIf(a -> a == arc);
+            }
+            for (var arc : in.get(c)) {
+                contractedNeighbours[arc.from]++;
+                out.get(arc.from).removeIf(a -> a == arc);
+            }
+        }
+        up = new ArrayList<>(nbCities);
+        down = new ArrayList<>(nbCities);
+        for (int c = 0; c < nbCities; c++) {
+            up.add(new ArrayList<>());
+            down.add(new ArrayList<>());
+        }
+        var linked = new boolean[nbCities];
+        for (var arc : arcs) {
+            if (rank[arc.from] < rank[arc.to]) up.get(arc.from).add(arc);
+            else down.get(arc.to).add(arc);
+            linked[arc.from] = linked[arc.to] = true;
+        }
+        byRank = IntStream.range(0, nbCities).filter(c -> linked[c])
+                .boxed().sorted(Comparator.comparingInt(c -> rank[c])).mapToInt(Integer::intValue).toArray();
+        position = new int[nbCities];
+        Arrays.fill(position, -1);
+        for (int i = 0; i < byRank.length; i++) position[byRank[i]] = i;
+    }
+
+    /**
+     * @return priority of the contraction of a city: shortcuts added minus links removed, plus the
+     * neighbours already contracted (to contract the cities uniformly)
+     */
+    private long priority(int c, List<List<Arc>> out, List<List<Arc>> in, int[] contractedNeighbours,
+                          Witness witness) {
+        int shortcuts = contract(c, out, in, witness, null);
+        return shortcuts - out.get(c).size() - in.get(c).size() + contractedNeighbours[c];
+    }
+
+    /**
+     * add the shortcuts needed by the contraction of a city<br>
+     * out and in only hold the links between the cities that are not contracted yet; a shortcut replaces
+     * a longer link between the same cities
+     *
+     * @param arcs list of all the links, in which the shortcuts are added; null to only count the shortcuts
+     * @return nb of shortcuts
+     */
+    private int contract(int c, List<List<Arc>> out, List<List<Arc>> in, Witness witness, List<Arc> arcs) {
+        int shortcuts = 0;
+        for (var first : in.get(c)) {
+            int u = first.from;
+            int limit = 0;
+            for (var second : out.get(c))
+                if (second.to != u) limit = Math.max(limit, first.duration + second.duration);
+            if (limit == 0) continue;
+            witness.search(u, c, limit, out);
+            for (var second : out.get(c)) {
+                int x = second.to;
+                if (x == u) continue;
+                int duration = first.duration + second.duration;
+                if (witness.distance(x) <= duration) continue;
+                shortcuts++;
+                if (arcs != null) {
+                    var shortcut = new Arc(u, x, duration, -1, first, second);
+                    out.get(u).removeIf(arc -> arc.to == x && arc.duration >= duration);
+                    in.get(x).removeIf(arc -> arc.from == u && arc.duration >= duration);
+                    out.get(u).add(shortcut);
+                    in.get(x).add(shortcut);
+                    arcs.add(shortcut);
+                }
+            }
+        }
+        return shortcuts;
+    }
+
+    /**
+     * shortest chain of transfers from 'from' to 'to'
+     *
+     * @param from id of the departure
+     * @param to   id of the arrival
+     * @return the numbers of the transfers of the chain, in order; null if 'to' cannot be reached
+     */
+    int[] route(int from, int to) {
+        int n = rank.length;
+        if (from < 0 || to < 0 || from >= n || to >= n) return null;
+        if (from == to) return new int[0];
+        int[] forward = new int[n];
+        int[] backward = new int[n];
+        Arrays.fill(forward, Integer.MAX_VALUE);
+        Arrays.fill(backward, Integer.MAX_VALUE);
+        var forwardArc = new Arc[n];
+        var backwardArc = new Arc[n];
+        var forwardQueue = new PriorityQueue<long[]>((a, b) -> Long.compare(a[0], b[0]));
+        var backwardQueue = new PriorityQueue<long[]>((a, b) -> Long.compare(a[0], b[0]));
+        forward[from] = 0;
+        backward[to] = 0;
+        forwardQueue.add(new long[]{0, from});
+        backwardQueue.add(new long[]{0, to});
+        int best = Integer.MAX_VALUE;
+        int meeting = -1;
+        while (!forwardQueue.isEmpty() || !backwardQueue.isEmpty()) {
+            boolean goForward = backwardQueue.isEmpty()
+                    || (!forwardQueue.isEmpty() && forwardQueue.peek()[0] <= backwardQueue.peek()[0]);
+            var queue = goForward ? forwardQueue : backwardQueue;
+            var head = queue.poll();
+            if (head[0] >= best) {
+                queue.clear(); // this side cannot find a shorter chain
+                continue;
+            }
+            int c = (int) head[1];
+            int[] dist = goForward ? forward : backward;
+            if (head[0] > dist[c]) continue;
+            int[] other = goForward ? backward : forward;
+            if (other[c] != Integer.MAX_VALUE && dist[c] + other[c] < best) {
+                best = dist[c] + other[c];
+                meeting = c;
+            }
+            for (var arc : (goForward ? up : down).get(c)) {
+                int next = goForward ? arc.to : arc.from;
+                int d = dist[c] + arc.duration;
+                if (d < dist[next]) {
+                    dist[next] = d;
+                    (goForward ? forwardArc : backwardArc)[next] = arc;
+                    queue.add(new long[]{d, next});
+                }
+            }
+        }
+        if (meeting < 0) return null;
+        var arcs = new ArrayList<Arc>();
+        for (int c = meeting; c != from; c = forwardArc[c].from) arcs.add(forwardArc[c]);
+        Collections.reverse(arcs);
+        for (int c = meeting; c != to; c = backwardArc[c].to) arcs.add(backwardArc[c]);
+        var edges = new ArrayList<Integer>();
+        for (var arc : arcs) unpack(arc, edges);
+        return edges.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * fastest chains of transfers from a city to all the others<br>
+     * the links up the hierarchy form no cycle: they are relaxed once, by increasing rank from the departure,
+     * then the links down the hierarchy by decreasing rank (as in PHAST); no queue is needed, and the cities
+     * without transfer are not visited. The availability of the bikes is not checked
+     *
+     * @param from     id of the departure
+     * @param duration filled with the duration of the fastest chain to each city linked to another one
+     *                 (Integer.MAX_VALUE if it cannot be reached)
+     * @param last     filled with the number of the last transfer of the fastest chain to each city reached
+     * @param reached  filled with the cities reached, the departure excepted
+     * @return nb of cities reached
+     */
+    int chainsFrom(int from, int[] duration, int[] last, int[] reached) {
+        if (from < 0 || from >= position.length || position[from] < 0) return 0;
+        for (int c : byRank) duration[c] = Integer.MAX_VALUE;
+        duration[from] = 0;
+        for (int i = position[from]; i < byRank.length; i++) {
+            int c = byRank[i];
+            if (duration[c] == Integer.MAX_VALUE) continue;
+            for (var arc : up.get(c)) relax(arc, duration, last);
+        }
+        int nb = 0;
+        for (int i = byRank.length - 1; i >= 0; i--) {
+            int c = byRank[i];
+            for (var arc : down.get(c)) relax(arc, duration, last);
+            if (c != from && duration[c] != Integer.MAX_VALUE) reached[nb++] = c;
+        }
+        return nb;
+    }
+
+    /**
+     * improve the duration of the chain to the end of a link by the chain to its beginning
+     */
+    private static void relax(Arc arc, int[] duration, int[] last) {
+        if (duration[arc.from] == Integer.MAX_VALUE) return;
+        int d = duration[arc.from] + arc.duration;
+        if (d >= duration[arc.to]) return;
+        duration[arc.to] = d;
+        var a = arc;
+        while (a.edge < 0) a = a.second;
+        last[arc.to] = a.edge;
+    }
+
+    /**
+     * fastest chain of transfers from 'from' to 'to' that has a bike at each leg<br>
+     * the chain of the hierarchy is kept if the BikeZoneManager has a bike for each of its transfers; else
+     * the transfers are searched again, without the hierarchy, leaving out those without bike
+     *
+     * @param from id of the departure
+     * @param to   id of the arrival
+     * @param date departure date
+     * @return the numbers of the transfers of the chain, in order; null if 'to' cannot be reached
+     */
+    int[] route(int from, int to, int date) {
+        var chain = route(from, to);
+        if (chain == null) return null;
+        int t = date;
+        for (int e : chain) {
+            if (!layer.hasAvailablePlaces(e, t)) return routeWithBikes(from, to, date);
+            t = Journey.addTime(t, layer.duration(e));
+        }
+        return chain;
+    }
+
+    /**
+     * dijkstra on the transfers of the layer, leaving out the transfers without bike at the date they are taken
+     */
+    private int[] routeWithBikes(int from, int to, int date) {
+        int n = rank.length;
+        int[] dist = new int[n];
+        int[] reachedBy = new int[n];
+        Arrays.fill(dist, Integer.MAX_VALUE);
+        Arrays.fill(reachedBy, -1);
+        dist[from] = 0;
+        var queue = new PriorityQueue<long[]>((a, b) -> Long.compare(a[0], b[0]));
+        queue.add(new long[]{0, from});
+        while (!queue.isEmpty()) {
+            var head = queue.poll();
+            int c = (int) head[1];
+            if (head[0] > dist[c]) continue;
+            if (c == to) break;
+            int t = Journey.addTime(date, dist[c]);
+            for (int e = layer.first(c); e < layer.end(c); e++) {
+                int next = layer.stop(e);
+                int d = dist[c] + layer.duration(e);
+                if (next < n && d < dist[next] && layer.hasAvailablePlaces(e, t)) {
+                    dist[next] = d;
+                    reachedBy[next] = e;
+                    queue.add(new long[]{d, next});
+                }
+            }
+        }
+        if (dist[to] == Integer.MAX_VALUE) return null;
+        var edges = new ArrayList<Integer>();
+        for (int c = to; c != from; c = layer.edge(reachedBy[c]).startId) edges.add(reachedBy[c]);
+        Collections.reverse(edges);
+        return edges.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * add the transfers of a link (of the two links of a shortcut, recursively) to a list
+     */
+    private static void unpack(Arc arc, List<Integer> edges) {
+        if (arc.edge >= 0) edges.add(arc.edge);
+        else {
+            unpack(arc.first, edges);
+            unpack(arc.second, edges);
+        }
+    }
+
+    /**
+     * bounded search from a city that does not go through the contracted city, to know if a shortcut is needed
+     */
+    private static final class Witness {
+        private final int[] distance;
+        private final List<Integer> touched;
+
+        Witness(int nbCities) {
+            distance = new int[nbCities];
+            Arrays.fill(distance, Integer.MAX_VALUE);
+            touched = new ArrayList<>();
+        }
+
+        /**
+         * compute the distances from 'from' without going through 'avoid', up to limit
+         */
+        void search(int from, int avoid, int limit, List<List<Arc>> out) {
+            for (int c : touched) distance[c] = Integer.MAX_VALUE;
+            touched.clear();
+            distance[from] = 0;
+            touched.add(from);
+            var queue = new PriorityQueue<long[]>((a, b) -> Long.compare(a[0], b[0]));
+            queue.add(new long[]{0, from});
+            int settled = 0;
+            while (!queue.isEmpty() && settled < WITNESS_LIMIT) {
+                var head = queue.poll();
+                int c = (int) head[1];
+                if (head[0] > distance[c]) continue;
+                if (head[0] > limit) break;
+                settled++;
+                for (var arc : out.get(c)) {
+                    int next = arc.to;
+                    if (next == avoid) continue;
+                    int d = distance[c] + arc.duration;
+                    if (d < distance[next]) {
+                        if (distance[next] == Integer.MAX_VALUE) touched.add(next);
+                        distance[next] = d;
+                        queue.add(new long[]{d, next});
+                    }
+                }
+            }
+        }
+
+        int distance(int c) {
+            return distance[c];
+        }
+    }
+}
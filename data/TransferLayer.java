@@ -0,0 +1,199 @@
+package data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * layer of the journeys that can be taken anytime (the bikes) of a catalog<br>
+ * such a journey is a transfer between two cities with a fixed duration: it leaves when the traveller
+ * arrives. The transfers are numbered once, grouped by departure city, with their arrival and their duration
+ * in arrays, so that a search relaxes them without creating any journey and without reading the weather
+ * for each of them (it is read once by search, see isAllowed). A journey with its dates is only created
+ * when a found path is returned (see takenAt). The places are still given by the BikeZoneManager
+ *
+ * @author emmanueladam
+ */
+final class TransferLayer {
+    /**
+     * the journeys that can be taken anytime, grouped by departure city
+     */
+    private final Journey[] edges;
+    /**
+     * number of the first transfer of each departure city (nbCities + 1 values)
+     */
+    private final int[] firstEdge;
+    /**
+     * id of the arrival city of each transfer
+     */
+    private final int[] stopOf;
+    /**
+     * duration of each transfer (in mn.)
+     */
+    private final int[] durationOf;
+    /**
+     * numbers of the transfers grouped by arrival city, for the searches made backwards
+     */
+    private final int[] into;
+    /**
+     * index in 'into' of the first transfer to each arrival city (nbCities + 1 values)
+     */
+    private final int[] firstInto;
+    /**
+     * contraction hierarchy of the transfers, built at the first request (see hierarchy)
+     */
+    private volatile TransferHierarchy hierarchy;
+
+    /**
+     * number the transfers of a catalog
+     *
+     * @param catalog the journeys
+     */
+    TransferLayer(JourneysList catalog) {
+        int nbCities = CityDictionary.getInstance().size();
+        firstEdge = new int[nbCities + 1];
+        var all = new ArrayList<Journey>();
+        for (int c = 0; c < nbCities; c++) {
+            var list = catalog.allJourneysFrom(c);
+            if (list != null)
+                for (Journey j : list)
+                    if (j.meansType.isBike()) all.add(j);
+            firstEdge[c + 1] = all.size();
+        }
+        edges = all.toArray(new Journey[0]);
+        stopOf = new int[edges.length];
+        durationOf = new int[edges.length];
+        for (int e = 0; e < edges.length; e++) {
+            stopOf[e] = edges[e].stopId;
+            durationOf[e] = edges[e].duration;
+        }
+        firstInto = new int[nbCities + 1];
+        for (int e = 0; e < edges.length; e++)
+            if (stopOf[e] < nbCities) firstInto[stopOf[e] + 1]++;
+        for (int c = 0; c < nbCities; c++) firstInto[c + 1] += firstInto[c];
+        into = new int[firstInto[nbCities]];
+        int[] next = Arrays.copyOf(firstInto, nbCities);
+        for (int e = 0; e < edges.length; e++)
+            if (stopOf[e] < nbCities) into[next[stopOf[e]]++] = e;
+    }
+
+    /**
+     * @return true if the transfers can be taken with the current weather; read once by search
+     */
+    static boolean isAllowed() {
+        return WeatherManager.getInstance().areBikeJourneysAllowed();
+    }
+
+    /**
+     * @param date date of the beginning of a search
+     * @return true if the BikeZoneManager has a bike at each city that has transfers; no bike is booked during
+     * a search and the returns only add bikes, so it has one at each city until the end of the search
+     */
+    boolean hasBikesEverywhere(int date) {
+        for (int c = 0; c < firstEdge.length - 1; c++)
+            if (first(c) < end(c) && !hasAvailablePlaces(first(c), date)) return false;
+        return true;
+    }
+
+    /**
+     * @return the contraction hierarchy of the transfers, built at the first call; it is dropped with the layer
+     * when the catalog changes
+     */
+    TransferHierarchy hierarchy() {
+        var h = hierarchy;
+        if (h == null) hierarchy = h = new TransferHierarchy(this, firstEdge.length - 1);
+        return h;
+    }
+
+    /**
+     * @param city id of a city
+     * @return number of the first transfer from the city
+     */
+    int first(int city) {
+        return (city < 0 || city >= firstEdge.length - 1) ? 0 : firstEdge[city];
+    }
+
+    /**
+     * @param city id of a city
+     * @return number following the last transfer from the city
+     */
+    int end(int city) {
+        return (city < 0 || city >= firstEdge.length - 1) ? 0 : firstEdge[city + 1];
+    }
+
+    /**
+     * @param city id of a city
+     * @return index of the first transfer to the city, for intoEdge
+     */
+    int firstInto(int city) {
+        return (city < 0 || city >= firstInto.length - 1) ? 0 : firstInto[city];
+    }
+
+    /**
+     * @param city id of a city
+     * @return index following the last transfer to the city
+     */
+    int endInto(int city) {
+        return (city < 0 || city >= firstInto.length - 1) ? 0 : firstInto[city + 1];
+    }
+
+    /**
+     * @param k index between firstInto(city) and endInto(city)
+     * @return number of a transfer to the city
+     */
+    int intoEdge(int k) {
+        return into[k];
+    }
+
+    /**
+     * @return nb of transfers
+     */
+    int size() {
+        return edges.length;
+    }
+
+    /**
+     * @param e number of a transfer
+     * @return id of its arrival city
+     */
+    int stop(int e) {
+        return stopOf[e];
+    }
+
+    /**
+     * @param e number of a transfer
+     * @return its duration (in mn.)
+     */
+    int duration(int e) {
+        return durationOf[e];
+    }
+
+    /**
+     * @param e number of a transfer
+     * @return the journey of the catalog, with its nominal dates
+     */
+    Journey edge(int e) {
+        return edges[e];
+    }
+
+    /**
+     * @param e    number of a transfer
+     * @param date date at which it is taken
+     * @return true if the BikeZoneManager has a bike at the departure of the transfer
+     */
+    boolean hasAvailablePlaces(int e, int date) {
+        var j = edges[e];
+        return j.hasAvailablePlaces(Math.max(date, j.departureDate));
+    }
+
+    /**
+     * @param j         a journey that can be taken anytime
+     * @param departure date at which it is taken
+     * @return a copy of the journey with this departure date and the corresponding arrival date
+     */
+    static Journey takenAt(Journey j, int departure) {
+        var leg = j.clone();
+        leg.departureDate = departure;
+        leg.arrivalDate = Journey.addTime(departure, j.duration);
+        return leg;
+    }
+}
@@ -50,7 +50,7 @@ public class WeatherManager {
     /**
      * Get singleton instance
      */
-    public static WeatherManager getInstance() {
+    public static synchronized WeatherManager getInstance() {
         if (instance == null) {
             instance = new WeatherManager();
         }
@@ -80,7 +80,7 @@ public class WeatherManager {
     /**
      * Get current weather data with caching
      */
-    public Meteo.WeatherData getCurrentWeather() {
+    public synchronized Meteo.WeatherData getCurrentWeather() {
         long now = System.currentTimeMillis();
         
         // Use cached data if fresh enough
@@ -160,21 +160,27 @@ public class WeatherManager {
      * Get duration adjustment factor for a transport type
      */
     public double getDurationAdjustmentFactor(String transportType) {
-        WeatherCondition condition = analyzeWeatherConditions();
-        
         if (transportType == null) return 1.0;
+        return getDurationAdjustmentFactor(Means.of(transportType));
+    }
+    
+    /**
+     * Get duration adjustment factor for a transport means
+     */
+    public double getDurationAdjustmentFactor(Means means) {
+        if (means.getWeather() == Means.Weather.NONE) return 1.0;
         
-        String upperType = transportType.toUpperCase();
+        WeatherCondition condition = analyzeWeatherConditions();
         
         switch (condition) {
             case STRONG_WIND:
-                if (upperType.equals("BIKE") || upperType.equals("VELO") || upperType.equals("VÉLO")) {
+                if (means.getWeather() == Means.Weather.BIKE) {
                     return WIND_DURATION_FACTOR;
                 }
                 break;
                 
             case SNOW:
-                if (upperType.equals("CAR") || upperType.equals("VOITURE")) {
+                if (means.getWeather() == Means.Weather.CAR) {
                     return SNOW_DURATION_FACTOR;
                 }
                 break;
@@ -187,14 +193,17 @@ public class WeatherManager {
      * Get cost adjustment factor for a transport type
      */
     public double getCostAdjustmentFactor(String transportType) {
-        WeatherCondition condition = analyzeWeatherConditions();
-        
         if (transportType == null) return 1.0;
+        return getCostAdjustmentFactor(Means.of(transportType));
+    }
+    
+    /**
+     * Get cost adjustment factor for a transport means
+     */
+    public double getCostAdjustmentFactor(Means means) {
+        if (means.getWeather() != Means.Weather.CAR) return 1.0;
         
-        String upperType = transportType.toUpperCase();
-        
-        if (condition == WeatherCondition.SNOW && 
-            (upperType.equals("CAR") || upperType.equals("VOITURE"))) {
+        if (analyzeWeatherConditions() == WeatherCondition.SNOW) {
             return SNOW_COST_FACTOR;
         }
         
@@ -288,7 +297,7 @@ public class WeatherManager {
     /**
      * Force refresh weather data
      */
-    public void refreshWeatherData() {
+    public synchronized void refreshWeatherData() {
         cachedWeatherData = null;
         lastWeatherUpdate = 0;
         getCurrentWeather();
@@ -57,8 +57,8 @@ public class AgenceGui extends JFrame {
             WeatherManager.getInstance().refreshWeatherData();
             updateWeatherInfo();
             // Also refresh journey adjustments
-            if (myAgent.getCatalog() != null) {
-                myAgent.getCatalog().refreshWeatherAdjustments();
+            if (myAgent.getCatalogs() != null) {
+                myAgent.getCatalogs().refreshWeatherAdjustments();
             }
             println("Weather data refreshed - journey adjustments updated");
         });